@@ -1,17 +1,46 @@
 import doctor.Doctor;
 import parser.ASTPrinter;
 import parser.Parser;
+import runtime.Cancellation;
+import runtime.CompiledScript;
+import runtime.Limits;
+import runtime.Optimizer;
 import runtime.Resolver;
 import runtime.Runtime;
+import runtime.Scheduler;
+import runtime.Snapshot;
 import scanner.Scanner;
+import session.Repl;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Main {
 
+    private static final boolean PARALLEL = Boolean.getBoolean("lox.parallel");
+    /**
+     * Only for scripts that are the whole program, see {@link Optimizer}: a REPL, a prelude and a script run after
+     * it are never memoized.
+     */
+    private static final int MEMOIZE = Integer.getInteger("lox.memoize", 0);
+    private static final String SNAPSHOT = System.getProperty("lox.snapshot");
+    private static final boolean LAZY = Boolean.getBoolean("lox.lazy");
+
     public static void main(String[] args) {
+        if (args.length == 1 && args[0].equals("repl")) {
+            repl();
+            return;
+        }
         if (args.length < 2) {
             System.err.println("Usage: ./your_program.sh tokenize <filename>");
             System.exit(1);
@@ -20,6 +49,20 @@ public class Main {
         String command = args[0];
         String fileName = args[1];
 
+        if (command.equals("runall")) {
+            runAll(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (command.equals("snapshot")) {
+            if (args.length != 3) {
+                System.err.println("Usage: ./your_program.sh snapshot <prelude> <snapshot>");
+                System.exit(1);
+            }
+            snapshot(content(fileName), Path.of(args[2]));
+            return;
+        }
+
         switch (command) {
             case "tokenize" -> tokenize(content(fileName));
             case "parse" -> parse(content(fileName));
@@ -33,7 +76,7 @@ public class Main {
     }
 
     private static void tokenize(String content) {
-        var doctor = Doctor.console();
+        var doctor = Doctor.fromSystemProperties();
         var scanner = new Scanner(content, doctor);
 
         for (var token : scanner.scanTokens()) {
@@ -44,7 +87,7 @@ public class Main {
     }
 
     private static void parse(String content) {
-        var doctor = Doctor.console();
+        var doctor = Doctor.fromSystemProperties();
 
         var scanner = new Scanner(content, doctor);
         var parser = new Parser(scanner.scanTokens(), doctor);
@@ -55,10 +98,10 @@ public class Main {
     }
 
     private static void evaluate(String content) {
-        var doctor = Doctor.console();
+        var doctor = Doctor.fromSystemProperties();
 
         var scanner = new Scanner(content, doctor);
-        var runtime = new Runtime(doctor);
+        var runtime = new Runtime(doctor, Limits.fromSystemProperties(), Cancellation.fromSystemProperties());
         var resolver = new Resolver(runtime, doctor);
 
         var parser = new Parser(scanner.scanTokens(), doctor);
@@ -71,21 +114,122 @@ public class Main {
     }
 
     private static void run(String content) {
-        var doctor = Doctor.console();
+        var doctor = Doctor.fromSystemProperties();
 
         var scanner = new Scanner(content, doctor);
-        var runtime = new Runtime(doctor);
+        var runtime = new Runtime(doctor, Limits.fromSystemProperties(), Cancellation.fromSystemProperties());
         var resolver = new Resolver(runtime, doctor);
 
-        var parser = new Parser(scanner.scanTokens(), doctor);
-        var statements = parser.parseStatements();
+        restore(runtime);
+
+        var tokens = PARALLEL ? scanner.scanTokens(ForkJoinPool.commonPool()) : scanner.scanTokens();
+        var parser = new Parser(tokens, doctor, LAZY);
+        var statements = PARALLEL ? parser.parseStatements(ForkJoinPool.commonPool()) : parser.parseStatements();
 
         resolver.resolve(statements);
-        runtime.run(statements);
+        runtime.run(new Optimizer(runtime, SNAPSHOT == null ? MEMOIZE : 0).optimize(statements));
 
         doctor.diagnostics();
     }
 
+    /**
+     * Runs every file as a script of its own on a {@link Scheduler}, all of them at once. The output of each script
+     * is printed once it has finished, in the order of the files. The quantum is {@code lox.limits.quantum}, or the
+     * scheduler's default if that is not set.
+     */
+    private static void runAll(String[] fileNames) {
+        var limits = Limits.fromSystemProperties();
+        var scripts = new ArrayList<CompiledScript>();
+        var hasErrors = false;
+        for (var fileName : fileNames) {
+            var script = CompiledScript.compile(content(fileName));
+            script.diagnostics().forEach(System.err::println);
+            hasErrors |= !script.diagnostics().isEmpty();
+            scripts.add(script);
+        }
+        if (hasErrors) System.exit(65);
+
+        var outputs = new ArrayList<ByteArrayOutputStream>();
+        var results = new ArrayList<Future<CompiledScript.Result>>();
+        try (var scheduler = new Scheduler()) {
+            for (var script : scripts) {
+                var output = new ByteArrayOutputStream();
+                outputs.add(output);
+                results.add(scheduler.submit(script, new PrintStream(output, true), limits, Cancellation.fromSystemProperties()));
+            }
+        }
+
+        var hasRuntimeError = false;
+        for (int i = 0; i < scripts.size(); i++) {
+            System.out.print(outputs.get(i));
+            try {
+                var result = results.get(i).get();
+                result.diagnostics().forEach(System.err::println);
+                hasRuntimeError |= !result.isSuccess();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error running %s: %s".formatted(fileNames[i], e.getMessage()));
+                hasRuntimeError = true;
+            }
+        }
+        if (hasRuntimeError) System.exit(70);
+    }
+
+    /**
+     * Runs a prelude and writes the globals it leaves behind to a snapshot that {@code -Dlox.snapshot} starts from.
+     */
+    private static void snapshot(String content, Path path) {
+        var doctor = Doctor.fromSystemProperties();
+
+        var scanner = new Scanner(content, doctor);
+        var runtime = new Runtime(doctor, Limits.fromSystemProperties(), Cancellation.fromSystemProperties());
+        var resolver = new Resolver(runtime, doctor);
+
+        var statements = new Parser(scanner.scanTokens(), doctor).parseStatements();
+        resolver.resolve(statements);
+        runtime.run(new Optimizer(runtime).optimize(statements));
+        doctor.diagnostics();
+
+        try {
+            Snapshot.write(runtime, path);
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void restore(Runtime runtime) {
+        if (SNAPSHOT == null) return;
+        try {
+            Snapshot.read(runtime, Path.of(SNAPSHOT));
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void repl() {
+        var doctor = Doctor.collecting();
+        var runtime = new Runtime(doctor, Limits.fromSystemProperties());
+        restore(runtime);
+        var repl = new Repl(runtime, doctor, System.err);
+        var reader = new BufferedReader(new InputStreamReader(System.in));
+
+        while (true) {
+            System.out.print(repl.prompt());
+            System.out.flush();
+
+            String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                System.err.println("Error reading input: " + e.getMessage());
+                return;
+            }
+            if (line == null) return;
+            repl.line(line);
+        }
+    }
+
     private static String content(String fileName) {
         try {
             return Files.readString(Path.of(fileName));
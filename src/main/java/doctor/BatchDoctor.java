@@ -0,0 +1,94 @@
+package doctor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps diagnostics in memory and writes them to {@code System.err} in one go when {@link #diagnostics()} is called,
+ * as text or as a JSON document. At most {@code limit} diagnostics are kept, the rest are only counted.
+ * <p>
+ * A syntax error on the line where the parser last recovered from one is taken for a cascade: after it synchronizes
+ * the parser usually trips over the rest of the broken statement, which says nothing new about the input. Errors of
+ * the scanner are all kept, they are reported before any recovery.
+ */
+final class BatchDoctor implements Doctor {
+
+    private final List<Diagnostic> reports = new ArrayList<>();
+    private final int limit;
+    private final boolean json;
+    private int suppressed;
+    private int recoveredLine = -1;
+    private boolean hasErrors;
+    private boolean hasRuntimeError;
+
+    BatchDoctor(int limit, boolean json) {
+        this.limit = limit;
+        this.json = json;
+    }
+
+    @Override
+    public void diagnostics() {
+        if (!reports.isEmpty() || suppressed > 0) {
+            System.err.print(output());
+            System.err.flush();
+        }
+        if (hasErrors) System.exit(65);
+        if (hasRuntimeError) System.exit(70);
+    }
+
+    @Override
+    public void report(int line, String where, String message) {
+        hasErrors = true;
+        if (line == recoveredLine) {
+            suppressed++;
+            return;
+        }
+        add(new Diagnostic(Diagnostic.Kind.SYNTAX, line, where, message));
+    }
+
+    @Override
+    public void recovered(int line) {
+        recoveredLine = line;
+    }
+
+    @Override
+    public void runtimeError(RuntimeError error) {
+        hasRuntimeError = true;
+        add(new Diagnostic(Diagnostic.Kind.RUNTIME, error.line(), "", error.getMessage()));
+    }
+
+    private void add(Diagnostic diagnostic) {
+        if (reports.size() < limit) {
+            reports.add(diagnostic);
+        } else {
+            suppressed++;
+        }
+    }
+
+    /**
+     * What {@link #diagnostics()} writes.
+     */
+    String output() {
+        return json ? json() : text();
+    }
+
+    private String text() {
+        var output = new StringBuilder();
+        for (var diagnostic : reports) {
+            output.append(diagnostic).append('\n');
+        }
+        if (suppressed > 0) {
+            output.append("... %d more errors suppressed.\n".formatted(suppressed));
+        }
+        return output.toString();
+    }
+
+    private String json() {
+        var output = new StringBuilder("{\"diagnostics\":[");
+        for (int i = 0; i < reports.size(); i++) {
+            if (i > 0) output.append(',');
+            reports.get(i).toJson(output);
+        }
+        return output.append("],\"suppressed\":").append(suppressed).append("}\n").toString();
+    }
+}
@@ -0,0 +1,37 @@
+package doctor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class CollectingDoctor implements Doctor {
+
+    private final List<Diagnostic> reports = new ArrayList<>();
+
+    @Override
+    public void diagnostics() {
+    }
+
+    @Override
+    public void report(int line, String where, String message) {
+        reports.add(new Diagnostic(Diagnostic.Kind.SYNTAX, line, where, message));
+    }
+
+    @Override
+    public void runtimeError(RuntimeError error) {
+        reports.add(new Diagnostic(Diagnostic.Kind.RUNTIME, error.line(), "", error.getMessage()));
+    }
+
+    public List<Diagnostic> reports() {
+        return reports;
+    }
+
+    /**
+     * Returns the diagnostics reported since the previous call and forgets them.
+     */
+    public List<Diagnostic> drain() {
+        if (reports.isEmpty()) return List.of();
+        var drained = List.copyOf(reports);
+        reports.clear();
+        return drained;
+    }
+}
@@ -23,7 +23,7 @@ final class ConsoleDoctor implements Doctor {
 
     @Override
     public void runtimeError(RuntimeError error) {
-        var content = "%s\n[line %s]".formatted(error.getMessage(), error.token.line());
+        var content = "%s\n[line %s]".formatted(error.getMessage(), error.line());
         System.err.println(content);
         hasRuntimeError = true;
     }
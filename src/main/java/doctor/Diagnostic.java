@@ -0,0 +1,49 @@
+package doctor;
+
+public record Diagnostic(Kind kind, int line, String where, String message) {
+
+    public Diagnostic withLine(int line) {
+        return new Diagnostic(kind, line, where, message);
+    }
+
+    /**
+     * Appends this diagnostic as a JSON object, {@code where} is left out when empty.
+     */
+    void toJson(StringBuilder output) {
+        output.append("{\"kind\":\"").append(kind.name().toLowerCase()).append("\",\"line\":").append(line);
+        if (!where.isEmpty()) string(output.append(",\"where\":"), where.strip());
+        string(output.append(",\"message\":"), message);
+        output.append('}');
+    }
+
+    private static void string(StringBuilder output, String value) {
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> output.append("\\\"");
+                case '\\' -> output.append("\\\\");
+                case '\n' -> output.append("\\n");
+                case '\r' -> output.append("\\r");
+                case '\t' -> output.append("\\t");
+                default -> {
+                    if (c < 0x20) output.append("\\u%04x".formatted((int) c));
+                    else output.append(c);
+                }
+            }
+        }
+        output.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case SYNTAX -> "[line %s] Error%s: %s".formatted(line, where, message);
+            case RUNTIME -> "%s\n[line %s]".formatted(message, line);
+        };
+    }
+
+    public enum Kind {
+        SYNTAX, RUNTIME
+    }
+}
@@ -4,7 +4,7 @@ import scanner.Token;
 
 import static scanner.TokenType.EOF;
 
-public sealed interface Doctor permits ConsoleDoctor {
+public sealed interface Doctor permits BatchDoctor, CollectingDoctor, ConsoleDoctor {
 
     void diagnostics();
 
@@ -24,7 +24,30 @@ public sealed interface Doctor permits ConsoleDoctor {
 
     void report(int line, String where, String message);
 
+    /**
+     * Called by the parser when it has skipped to the next statement after a syntax error on {@code line}.
+     */
+    default void recovered(int line) {
+    }
+
     static Doctor console() {
         return new ConsoleDoctor();
     }
+
+    /**
+     * Writes every diagnostic as it is reported, or batches them when {@code -Dlox.diagnostics} is {@code batch} or
+     * {@code json}. A batching doctor keeps at most {@code -Dlox.diagnostics.limit} of them, 100 by default.
+     */
+    static Doctor fromSystemProperties() {
+        var limit = Integer.getInteger("lox.diagnostics.limit", 100);
+        return switch (System.getProperty("lox.diagnostics", "console")) {
+            case "batch" -> new BatchDoctor(limit, false);
+            case "json" -> new BatchDoctor(limit, true);
+            default -> console();
+        };
+    }
+
+    static CollectingDoctor collecting() {
+        return new CollectingDoctor();
+    }
 }
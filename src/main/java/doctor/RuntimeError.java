@@ -2,11 +2,24 @@ package doctor;
 
 import scanner.Token;
 
+import java.io.Serial;
+
 public class RuntimeError extends RuntimeException {
-    final Token token;
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
 
     public RuntimeError(Token token, String message) {
+        this(token.line(), message);
+    }
+
+    public RuntimeError(int line, String message) {
         super(message);
-        this.token = token;
+        this.line = line;
+    }
+
+    public int line() {
+        return line;
     }
 }
@@ -3,6 +3,7 @@ package parser;
 
 import scanner.Token;
 
+import java.util.ArrayList;
 import java.util.stream.Collectors;
 
 import static java.util.Optional.ofNullable;
@@ -27,6 +28,11 @@ public class ASTPrinter implements Expression.Visitor<String>, Statement.Visitor
         return parenthesize(it.name().lexeme(), it.value());
     }
 
+    @Override
+    public String visit(Expression.ArgumentExpression it) {
+        return it.name().lexeme();
+    }
+
     @Override
     public String visit(Expression.BinaryExpression it) {
         return parenthesize(it.operator().lexeme(), it.left(), it.right());
@@ -37,16 +43,51 @@ public class ASTPrinter implements Expression.Visitor<String>, Statement.Visitor
         return parenthesize("call", it.callee());
     }
 
+    @Override
+    public String visit(Expression.CompareExpression it) {
+        return it.original().accept(this);
+    }
+
     @Override
     public String visit(Expression.FunctionExpression it) {
         return parenthesizeStrings("function", ofNullable(it.name()).map(Token::lexeme).orElse("anonymous"));
     }
 
+    @Override
+    public String visit(Expression.GetExpression it) {
+        return parenthesize("get " + it.name().lexeme(), it.object());
+    }
+
     @Override
     public String visit(Expression.GroupingExpression it) {
         return parenthesize("group", it.expression());
     }
 
+    @Override
+    public String visit(Expression.IndexExpression it) {
+        return parenthesize("index", it.object(), it.index());
+    }
+
+    @Override
+    public String visit(Expression.IndexSetExpression it) {
+        return parenthesize("index=", it.object(), it.index(), it.value());
+    }
+
+    @Override
+    public String visit(Expression.InlinedCallExpression it) {
+        return it.original().accept(this);
+    }
+
+    @Override
+    public String visit(Expression.InvariantExpression it) {
+        return it.expression().accept(this);
+    }
+
+    @Override
+    public String visit(Expression.ListExpression it) {
+        return parenthesize("list", it.elements().toArray(Expression[]::new));
+    }
+
     @Override
     public String visit(Expression.LogicalExpression it) {
         return parenthesize(it.operator().lexeme(), it.left(), it.right());
@@ -58,6 +99,31 @@ public class ASTPrinter implements Expression.Visitor<String>, Statement.Visitor
         return it.value().toString();
     }
 
+    @Override
+    public String visit(Expression.MapExpression it) {
+        var entries = new ArrayList<Expression>();
+        for (int i = 0; i < it.keys().size(); i++) {
+            entries.add(it.keys().get(i));
+            entries.add(it.values().get(i));
+        }
+        return parenthesize("map", entries.toArray(Expression[]::new));
+    }
+
+    @Override
+    public String visit(Expression.SetExpression it) {
+        return parenthesize("set " + it.name().lexeme(), it.object(), it.value());
+    }
+
+    @Override
+    public String visit(Expression.SuperExpression it) {
+        return parenthesizeStrings("super", it.method().lexeme());
+    }
+
+    @Override
+    public String visit(Expression.ThisExpression it) {
+        return parenthesizeStrings("this");
+    }
+
     @Override
     public String visit(Expression.UnaryExpression it) {
         return parenthesize(it.operator().lexeme(), it.right());
@@ -73,6 +139,11 @@ public class ASTPrinter implements Expression.Visitor<String>, Statement.Visitor
         return it.statements().stream().map(this::print).collect(Collectors.joining("\n"));
     }
 
+    @Override
+    public String visit(Statement.ClassStatement it) {
+        return parenthesizeStrings("class", it.name().lexeme());
+    }
+
     @Override
     public String visit(Statement.ExpressionStatement it) {
         return it.expression().accept(this);
@@ -83,6 +154,11 @@ public class ASTPrinter implements Expression.Visitor<String>, Statement.Visitor
         return parenthesizeStrings("function", it.name().lexeme());
     }
 
+    @Override
+    public String visit(Statement.HoistedWhileStatement it) {
+        return it.loop().accept(this);
+    }
+
     @Override
     public String visit(Statement.IfStatement it) {
         var cond = it.condition();
@@ -93,11 +169,36 @@ public class ASTPrinter implements Expression.Visitor<String>, Statement.Visitor
                 : parenthesizeStrings(cond.accept(this), left.accept(this), right.accept(this));
     }
 
+    @Override
+    public String visit(Statement.ImportStatement it) {
+        return parenthesizeStrings("import", it.path().literal().toString());
+    }
+
+    @Override
+    public String visit(Statement.IncrementStatement it) {
+        return it.original().accept(this);
+    }
+
+    @Override
+    public String visit(Statement.LazyBodyStatement it) {
+        return parenthesizeStrings("lazy", it.name().lexeme());
+    }
+
+    @Override
+    public String visit(Statement.MemoizedFunctionStatement it) {
+        return it.function().accept(this);
+    }
+
     @Override
     public String visit(Statement.PrintStatement it) {
         return parenthesize("print", it.expression());
     }
 
+    @Override
+    public String visit(Statement.PrintVariableStatement it) {
+        return it.original().accept(this);
+    }
+
     @Override
     public String visit(Statement.ReturnStatement it) {
         return parenthesize("return", it.value());
@@ -0,0 +1,26 @@
+package parser;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Mutable state the runtime attaches to a node, e.g. the inline cache of a property access. The parser only
+ * allocates it, what is stored is up to the runtime. The value is volatile, so a value that is not modified after it
+ * is set, e.g. a fully built array, is safely published to runtimes on other threads. The value is not serialized, a
+ * restored node starts empty.
+ */
+public final class Cache implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile Object value;
+
+    public Object get() {
+        return value;
+    }
+
+    public void set(Object value) {
+        this.value = value;
+    }
+}
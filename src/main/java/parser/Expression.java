@@ -2,142 +2,599 @@ package parser;
 
 import scanner.Token;
 
+import java.io.Serializable;
 import java.util.List;
 
-public sealed interface Expression {
+public sealed interface Expression extends Serializable {
 
     <R> R accept(Visitor<R> visitor);
 
+    /**
+     * Index of the node type in the order of {@link Visitor}, the {@code TAG} of its record.
+     */
+    int tag();
+
+    /**
+     * Same as {@link #accept} with a switch over {@link #tag()} instead of a virtual call.
+     */
+    static <R> R dispatch(Expression node, Visitor<R> visitor) {
+        return switch (node.tag()) {
+            case TernaryExpression.TAG -> visitor.visit((TernaryExpression) node);
+            case AssignExpression.TAG -> visitor.visit((AssignExpression) node);
+            case ArgumentExpression.TAG -> visitor.visit((ArgumentExpression) node);
+            case BinaryExpression.TAG -> visitor.visit((BinaryExpression) node);
+            case CallExpression.TAG -> visitor.visit((CallExpression) node);
+            case CompareExpression.TAG -> visitor.visit((CompareExpression) node);
+            case FunctionExpression.TAG -> visitor.visit((FunctionExpression) node);
+            case GetExpression.TAG -> visitor.visit((GetExpression) node);
+            case GroupingExpression.TAG -> visitor.visit((GroupingExpression) node);
+            case IndexExpression.TAG -> visitor.visit((IndexExpression) node);
+            case IndexSetExpression.TAG -> visitor.visit((IndexSetExpression) node);
+            case InlinedCallExpression.TAG -> visitor.visit((InlinedCallExpression) node);
+            case InvariantExpression.TAG -> visitor.visit((InvariantExpression) node);
+            case ListExpression.TAG -> visitor.visit((ListExpression) node);
+            case LogicalExpression.TAG -> visitor.visit((LogicalExpression) node);
+            case LiteralExpression.TAG -> visitor.visit((LiteralExpression) node);
+            case MapExpression.TAG -> visitor.visit((MapExpression) node);
+            case SetExpression.TAG -> visitor.visit((SetExpression) node);
+            case SuperExpression.TAG -> visitor.visit((SuperExpression) node);
+            case ThisExpression.TAG -> visitor.visit((ThisExpression) node);
+            case UnaryExpression.TAG -> visitor.visit((UnaryExpression) node);
+            case VariableExpression.TAG -> visitor.visit((VariableExpression) node);
+            default -> throw new IllegalStateException("Unknown tag " + node.tag());
+        };
+    }
+
     interface Visitor<R> {
         R visit(TernaryExpression it);
         R visit(AssignExpression it);
+        R visit(ArgumentExpression it);
         R visit(BinaryExpression it);
         R visit(CallExpression it);
+        R visit(CompareExpression it);
         R visit(FunctionExpression it);
+        R visit(GetExpression it);
         R visit(GroupingExpression it);
+        R visit(IndexExpression it);
+        R visit(IndexSetExpression it);
+        R visit(InlinedCallExpression it);
+        R visit(InvariantExpression it);
+        R visit(ListExpression it);
         R visit(LogicalExpression it);
         R visit(LiteralExpression it);
+        R visit(MapExpression it);
+        R visit(SetExpression it);
+        R visit(SuperExpression it);
+        R visit(ThisExpression it);
         R visit(UnaryExpression it);
         R visit(VariableExpression it);
     }
 
     record TernaryExpression(Expression condition, Expression thenBranch, Expression elseBranch) implements Expression {
+        public static final int TAG = 0;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record AssignExpression(Token name, Expression value) implements Expression {
+        public static final int TAG = 1;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record ArgumentExpression(Token name, int index) implements Expression {
+        public static final int TAG = 2;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record BinaryExpression(Expression left, Token operator, Expression right) implements Expression {
+        public static final int TAG = 3;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record CallExpression(Expression callee, Token paren, List<Expression> arguments) implements Expression {
+        public static final int TAG = 4;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record CompareExpression(BinaryExpression original, int left, int right) implements Expression {
+        public static final int TAG = 5;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record FunctionExpression(Token name, List<Token> parameters, List<Statement> body) implements Expression {
+        public static final int TAG = 6;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record GetExpression(Expression object, Token name, Cache cache) implements Expression {
+        public static final int TAG = 7;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record GroupingExpression(Expression expression) implements Expression {
+        public static final int TAG = 8;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record IndexExpression(Expression object, Token bracket, Expression index) implements Expression {
+        public static final int TAG = 9;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record IndexSetExpression(Expression object, Token bracket, Expression index, Expression value) implements Expression {
+        public static final int TAG = 10;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record InlinedCallExpression(CallExpression original, Token function, List<Expression> arguments, Expression body) implements Expression {
+        public static final int TAG = 11;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record InvariantExpression(Expression expression, int slot) implements Expression {
+        public static final int TAG = 12;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record ListExpression(Token bracket, List<Expression> elements) implements Expression {
+        public static final int TAG = 13;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record LogicalExpression(Expression left, Token operator, Expression right) implements Expression {
+        public static final int TAG = 14;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record LiteralExpression(Object value) implements Expression {
+        public static final int TAG = 15;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record MapExpression(Token brace, List<Expression> keys, List<Expression> values) implements Expression {
+        public static final int TAG = 16;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record SetExpression(Expression object, Token name, Expression value, Cache cache) implements Expression {
+        public static final int TAG = 17;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record SuperExpression(Token keyword, Token method) implements Expression {
+        public static final int TAG = 18;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record ThisExpression(Token keyword) implements Expression {
+        public static final int TAG = 19;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record UnaryExpression(Token operator, Expression right) implements Expression {
+        public static final int TAG = 20;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record VariableExpression(Token name) implements Expression {
+        public static final int TAG = 21;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 }
@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Map.entry;
 
@@ -19,13 +20,20 @@ class Generate {
     private static void generateStatements() throws IOException {
         var statementTypes = List.of(
                 entry("BlockStatement", "List<Statement> statements"),
+                entry("ClassStatement", "Token name, Expression.VariableExpression superclass, List<FunctionStatement> methods, Cache cache"),
                 entry("ExpressionStatement", "Expression expression"),
                 entry("FunctionStatement", "Token name, List<Token> parameters, List<Statement> body"),
+                entry("HoistedWhileStatement", "WhileStatement loop, int invariants"),
                 entry("IfStatement", "Expression condition, Statement thenBranch, Statement elseBranch"),
+                entry("ImportStatement", "Token keyword, Token path"),
+                entry("IncrementStatement", "ExpressionStatement original, Token name, double step, int distance"),
+                entry("MemoizedFunctionStatement", "FunctionStatement function, int capacity"),
+                entry("LazyBodyStatement", "Token name, List<Token> parameters, LazyBody body"),
                 entry("PrintStatement", "Expression expression"),
+                entry("PrintVariableStatement", "PrintStatement original, Token name, int distance"),
                 entry("ReturnStatement", "Token keyword, Expression value"),
                 entry("VarStatement", "Token name, Expression initializer"),
-                entry("WhileStatement", "Expression condition, Statement body")
+                entry("WhileStatement", "Token keyword, Expression condition, Statement body")
         );
         generateAST("Statement", statementTypes);
     }
@@ -34,12 +42,24 @@ class Generate {
         var expressionTypes = List.of(
                 entry("TernaryExpression", "Expression condition, Expression thenBranch, Expression elseBranch"),
                 entry("AssignExpression", "Token name, Expression value"),
+                entry("ArgumentExpression", "Token name, int index"),
                 entry("BinaryExpression", "Expression left, Token operator, Expression right"),
                 entry("CallExpression", "Expression callee, Token paren, List<Expression> arguments"),
+                entry("CompareExpression", "BinaryExpression original, int left, int right"),
                 entry("FunctionExpression", "Token name, List<Token> parameters, List<Statement> body"),
+                entry("GetExpression", "Expression object, Token name, Cache cache"),
                 entry("GroupingExpression", "Expression expression"),
+                entry("IndexExpression", "Expression object, Token bracket, Expression index"),
+                entry("IndexSetExpression", "Expression object, Token bracket, Expression index, Expression value"),
+                entry("InlinedCallExpression", "CallExpression original, Token function, List<Expression> arguments, Expression body"),
+                entry("InvariantExpression", "Expression expression, int slot"),
+                entry("ListExpression", "Token bracket, List<Expression> elements"),
                 entry("LogicalExpression", "Expression left, Token operator, Expression right"),
                 entry("LiteralExpression", "Object value"),
+                entry("MapExpression", "Token brace, List<Expression> keys, List<Expression> values"),
+                entry("SetExpression", "Expression object, Token name, Expression value, Cache cache"),
+                entry("SuperExpression", "Token keyword, Token method"),
+                entry("ThisExpression", "Token keyword"),
                 entry("UnaryExpression", "Token operator, Expression right"),
                 entry("VariableExpression", "Token name")
         );
@@ -57,18 +77,35 @@ class Generate {
                     
                     import scanner.Token;
                     
+                    import java.io.Serializable;
                     import java.util.List;
                     
-                    public sealed interface BASE {
+                    public sealed interface BASE extends Serializable {
                     
                         <R> R accept(Visitor<R> visitor);
                     
+                        /**
+                         * Index of the node type in the order of {@link Visitor}, the {@code TAG} of its record.
+                         */
+                        int tag();
+                    
+                        /**
+                         * Same as {@link #accept} with a switch over {@link #tag()} instead of a virtual call.
+                         */
+                        static <R> R dispatch(BASE node, Visitor<R> visitor) {
+                            return switch (node.tag()) {
+                    // $CASES
+                                default -> throw new IllegalStateException("Unknown tag " + node.tag());
+                            };
+                        }
+                    
                     // $VISITOR
                     // $AST_TYPES
                     }
                     """
                     // language=none
                     .replace("BASE", baseInterface)
+                    .replace("// $CASES", renderCases(astTypes))
                     .replace("// $VISITOR", renderVisitor(astTypes))
                     .replace("// $AST_TYPES", renderTypes(baseInterface, astTypes));
             writer.write(code);
@@ -88,25 +125,47 @@ class Generate {
                 .indent(4);
     }
 
-    private static String renderTypes(String baseInterface, List<Map.Entry<String, String>> astTypes) {
+    private static String renderCases(List<Map.Entry<String, String>> astTypes) {
         return astTypes.stream()
+                .map(it -> "case $type.TAG -> visitor.visit(($type) node);".replace("$type", it.getKey()))
+                .collect(Collectors.joining("\n"))
+                .indent(12)
+                .stripTrailing();
+    }
+
+    private static String renderTypes(String baseInterface, List<Map.Entry<String, String>> astTypes) {
+        return IntStream.range(0, astTypes.size())
+                .mapToObj(i -> Map.entry(i, astTypes.get(i)))
                 .map(it ->
                         """
                                 record $name($components) implements $base {
+                                    public static final int TAG = $tag;
+                                
                                     @Override
                                     public <R> R accept(Visitor<R> visitor) {
                                         return visitor.visit(this);
                                     }
                                 
+                                    @Override
+                                    public int tag() {
+                                        return TAG;
+                                    }
+                                
                                     @Override
                                     public boolean equals(Object other) {
                                         return this == other;
                                     }
+                                
+                                    @Override
+                                    public int hashCode() {
+                                        return System.identityHashCode(this);
+                                    }
                                 }
                                 """
                                 .replace("$base", baseInterface)
-                                .replace("$name", it.getKey())
-                                .replace("$components", it.getValue())
+                                .replace("$name", it.getValue().getKey())
+                                .replace("$components", it.getValue().getValue())
+                                .replace("$tag", String.valueOf(it.getKey()))
                                 .indent(4)
                                 .stripTrailing()
                 ).collect(Collectors.joining("\n\n"));
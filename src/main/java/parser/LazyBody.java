@@ -0,0 +1,77 @@
+package parser;
+
+import doctor.Diagnostic;
+import doctor.Doctor;
+import scanner.TokenBuffer;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * The tokens of a function body the parser skipped over by matching braces. The body is parsed the first time it is
+ * compiled, a syntax error in it is handed to the compiler instead of being reported when the script is parsed.
+ * What the compiler makes of it is kept here, so every runtime on any thread shares a single compilation. Once it is
+ * there, reading it takes a single volatile read. Compiling takes a lock rather than a monitor, so a virtual thread
+ * waiting for another one to compile the body does not pin its carrier.
+ */
+public final class LazyBody implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private transient ReentrantLock lock = new ReentrantLock();
+    private final int start;
+    private final int end;
+    private TokenBuffer tokens;
+    private volatile Serializable compiled;
+
+    LazyBody(TokenBuffer tokens, int start, int end) {
+        this.tokens = tokens;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * The lock is not stored, a restored body gets a new one.
+     */
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        lock = new ReentrantLock();
+    }
+
+    /**
+     * What the body was compiled to, or {@code null} if it has not been compiled yet.
+     */
+    public Serializable compiled() {
+        return compiled;
+    }
+
+    /**
+     * Parses the body and passes its statements, {@code null} if it has a syntax error, and its syntax errors to
+     * {@code compiler} the first time it is called. Returns what the compiler returned then, on every call. The
+     * tokens are let go once parsed.
+     */
+    public Serializable compile(BiFunction<List<Statement>, List<Diagnostic>, ? extends Serializable> compiler) {
+        var compiled = this.compiled;
+        if (compiled != null) return compiled;
+        lock.lock();
+        try {
+            if (this.compiled == null) {
+                var doctor = Doctor.collecting();
+                var statements = new Parser(tokens, start, end, doctor, false).parseBlock();
+                this.compiled = compiler.apply(doctor.reports().isEmpty() ? statements : null,
+                        List.copyOf(doctor.reports()));
+                tokens = null;
+            }
+            return this.compiled;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
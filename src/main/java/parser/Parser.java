@@ -3,24 +3,46 @@ package parser;
 import doctor.Doctor;
 import doctor.RuntimeError;
 import scanner.Token;
+import scanner.TokenBuffer;
 import scanner.TokenType;
 
+import java.io.Serial;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Supplier;
 
 import static scanner.TokenType.*;
 
 public class Parser {
 
-    private final List<Token> tokens;
+    private static final int PARALLEL_CHUNK = 1 << 16;
+
+    private final TokenBuffer tokens;
     private final Doctor doctor;
+    private final int end;
+    private final boolean lazy;
+
+    private int current;
 
-    private int current = 0;
+    public Parser(TokenBuffer tokens, Doctor doctor) {
+        this(tokens, doctor, false);
+    }
+
+    /**
+     * @param lazy whether bodies of top-level functions are only brace-matched, see {@link LazyBody}
+     */
+    public Parser(TokenBuffer tokens, Doctor doctor, boolean lazy) {
+        this(tokens, 0, tokens.size(), doctor, lazy);
+    }
 
-    public Parser(List<Token> tokens, Doctor doctor) {
+    Parser(TokenBuffer tokens, int start, int end, Doctor doctor, boolean lazy) {
         this.tokens = tokens;
         this.doctor = doctor;
+        this.current = start;
+        this.end = end;
+        this.lazy = lazy;
     }
 
     public Expression parseExpression() {
@@ -34,25 +56,124 @@ public class Parser {
 
     public List<Statement> parseStatements() {
         var output = new ArrayList<Statement>();
-        while (!isEOF()) {
-            try {
-                output.add(declaration());
-            } catch (RuntimeError | ParseError error) {
-                synchronize();
-            }
+        while (hasNext()) {
+            var statement = parseDeclaration();
+            if (statement != null) output.add(statement);
         }
         return output;
     }
 
+    /**
+     * Splits the tokens between top-level declarations and parses the chunks on the given pool. Declarations are
+     * cut where brackets are balanced after a {@code ;} or {@code }} that cannot be continued by the next token.
+     * If any chunk has a syntax error the whole program is parsed again sequentially, so diagnostics are reported
+     * exactly as {@link #parseStatements()} would report them.
+     */
+    public List<Statement> parseStatements(ForkJoinPool pool) {
+        var boundaries = boundaries();
+        if (boundaries.size() <= 2) return parseStatements();
+
+        var chunks = new ArrayList<ForkJoinTask<List<Statement>>>();
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            var from = boundaries.get(i);
+            var to = boundaries.get(i + 1);
+            chunks.add(pool.submit(() -> {
+                var chunkDoctor = Doctor.collecting();
+                var statements = new Parser(tokens, from, to, chunkDoctor, lazy).parseStatements();
+                return chunkDoctor.reports().isEmpty() ? statements : null;
+            }));
+        }
+
+        var output = new ArrayList<Statement>();
+        for (var chunk : chunks) {
+            var statements = chunk.join();
+            if (statements == null) return parseStatements();
+            output.addAll(statements);
+        }
+        current = end;
+        return output;
+    }
+
+    private List<Integer> boundaries() {
+        var boundaries = new ArrayList<Integer>();
+        boundaries.add(current);
+        var depth = 0;
+        var last = current;
+        for (int i = current; i < end - 1; i++) {
+            switch (tokens.type(i)) {
+                case LEFT_BRACE, LEFT_PAREN, LEFT_BRACKET -> depth++;
+                case RIGHT_BRACE, RIGHT_PAREN, RIGHT_BRACKET -> depth--;
+            }
+            if (depth != 0 || i + 1 - last < PARALLEL_CHUNK) continue;
+            var type = tokens.type(i);
+            var next = tokens.type(i + 1);
+            if ((type == SEMICOLON || type == RIGHT_BRACE) && isDeclarationStart(next)) {
+                boundaries.add(i + 1);
+                last = i + 1;
+            }
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+
+    private static boolean isDeclarationStart(TokenType type) {
+        return switch (type) {
+            case CLASS, FUN, VAR, FOR, IF, IMPORT, WHILE, PRINT, RETURN, LEFT_BRACE, IDENTIFIER -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Parses a single top-level declaration, returns {@code null} if it had a syntax error.
+     */
+    public Statement parseDeclaration() {
+        try {
+            if (match(FUN)) return funDeclaration("function", lazy);
+            if (match(IMPORT)) return importStatement();
+            return declaration();
+        } catch (RuntimeError | ParseError error) {
+            synchronize();
+            return null;
+        }
+    }
+
+    public boolean hasNext() {
+        return !isEOF();
+    }
+
+    /**
+     * Index of the next token to be consumed.
+     */
+    public int position() {
+        return current;
+    }
+
     private Statement declaration() {
-        if (match(FUN)) return funDeclaration("function");
+        if (match(CLASS)) return classDeclaration();
+        if (match(FUN)) return funDeclaration("function", false);
         if (match(VAR)) return varDeclaration();
 
         return statement();
     }
 
-    private Statement funDeclaration(String kind) {
-        var name = consume(IDENTIFIER, "Expect " + kind + " name.");
+    private Statement classDeclaration() {
+        var name = consumeToken(IDENTIFIER, "Expect class name.");
+        var superclass = (Expression.VariableExpression) null;
+        if (match(LESS)) {
+            consume(IDENTIFIER, "Expect superclass name.");
+            superclass = new Expression.VariableExpression(previous());
+        }
+        consume(LEFT_BRACE, "Expect '{' before class body.");
+        var methods = new ArrayList<Statement.FunctionStatement>();
+        while (!check(RIGHT_BRACE) && !isEOF()) {
+            methods.add(funDeclaration("method", false));
+        }
+        consume(RIGHT_BRACE, "Expect '}' after class body.");
+        return new Statement.ClassStatement(name, superclass, methods, new Cache());
+    }
+
+    private Statement.FunctionStatement funDeclaration(String kind, boolean lazy) {
+        var name = consumeToken(IDENTIFIER, "Expect " + kind + " name.");
         consume(LEFT_PAREN, "Expect '(' after " + kind + " name.");
         var parameters = new ArrayList<Token>();
         if (!check(RIGHT_PAREN)) {
@@ -60,17 +181,49 @@ public class Parser {
                 if (parameters.size() >= 255) {
                     error(peek(), "Can't have more than 255 parameters.");
                 }
-                parameters.add(consume(IDENTIFIER, "Expect parameter name."));
+                parameters.add(consumeToken(IDENTIFIER, "Expect parameter name."));
             } while (match(COMMA));
         }
         consume(RIGHT_PAREN, "Expect ')' after parameters.");
         consume(LEFT_BRACE, "Expect '{' before " + kind + " body.");
-        var body = blockStatement();
-        return new Statement.FunctionStatement(name, parameters, body);
+        var closing = lazy ? closingBrace() : -1;
+        if (closing < 0) {
+            return new Statement.FunctionStatement(name, parameters, blockStatement());
+        }
+        var body = new Statement.LazyBodyStatement(name, parameters, new LazyBody(tokens, current, closing + 1));
+        current = closing + 1;
+        return new Statement.FunctionStatement(name, parameters, List.of(body));
+    }
+
+    /**
+     * Index of the {@code }} closing the block whose {@code {} was just consumed, or -1 if it is not closed.
+     */
+    private int closingBrace() {
+        var depth = 1;
+        for (int i = current; i < end && tokens.type(i) != EOF; i++) {
+            switch (tokens.type(i)) {
+                case LEFT_BRACE -> depth++;
+                case RIGHT_BRACE -> {
+                    if (--depth == 0) return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the rest of a block whose {@code {} has been consumed, returns {@code null} if it had a syntax error.
+     */
+    List<Statement> parseBlock() {
+        try {
+            return blockStatement();
+        } catch (RuntimeError | ParseError error) {
+            return null;
+        }
     }
 
     private Statement varDeclaration() {
-        Token name = consume(IDENTIFIER, "Expect variable name.");
+        Token name = consumeToken(IDENTIFIER, "Expect variable name.");
 
         Expression initializer = null;
         if (match(EQUAL)) initializer = expression();
@@ -82,6 +235,7 @@ public class Parser {
     private Statement statement() {
         if (match(FOR)) return forStatement();
         if (match(IF)) return ifStatement();
+        if (match(IMPORT)) throw error(previous(), "Can't import outside the top level.");
         if (match(RETURN)) return returnStatement();
         if (match(PRINT)) return printStatement();
         if (match(WHILE)) return whileStatement();
@@ -101,6 +255,7 @@ public class Parser {
     }
 
     private Statement forStatement() {
+        var keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'for'.");
         var initializer = (Statement) null;
         if (!match(SEMICOLON)) {
@@ -125,7 +280,7 @@ public class Parser {
         if (condition == null) {
             condition = new Expression.LiteralExpression(true);
         }
-        var loop = new Statement.WhileStatement(condition, body);
+        var loop = new Statement.WhileStatement(keyword, condition, body);
         if (initializer == null)
             return loop;
         return new Statement.BlockStatement(List.of(initializer, loop));
@@ -144,11 +299,12 @@ public class Parser {
     }
 
     private Statement whileStatement() {
+        var keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
         var condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after 'while' condition.");
         var body = statement();
-        return new Statement.WhileStatement(condition, body);
+        return new Statement.WhileStatement(keyword, condition, body);
     }
 
     private List<Statement> blockStatement() {
@@ -160,6 +316,13 @@ public class Parser {
         return statements;
     }
 
+    private Statement importStatement() {
+        var keyword = previous();
+        var path = consumeToken(STRING, "Expect module path after 'import'.");
+        consume(SEMICOLON, "Expect ';' after module path.");
+        return new Statement.ImportStatement(keyword, path);
+    }
+
     private Statement printStatement() {
         var expression = expression();
         consume(SEMICOLON, "Expect ';' after expression");
@@ -180,7 +343,7 @@ public class Parser {
     private Expression funExpression() {
         var name = (Token) null;
         if (!check(LEFT_PAREN)) {
-            name = consume(IDENTIFIER, "Expect function name.");
+            name = consumeToken(IDENTIFIER, "Expect function name.");
         }
         consume(LEFT_PAREN, "Expect '(' after function.");
         var parameters = new ArrayList<Token>();
@@ -189,7 +352,7 @@ public class Parser {
                 if (parameters.size() >= 255) {
                     error(peek(), "Can't have more than 255 parameters.");
                 }
-                parameters.add(consume(IDENTIFIER, "Expect parameter name."));
+                parameters.add(consumeToken(IDENTIFIER, "Expect parameter name."));
             } while (match(COMMA));
         }
         consume(RIGHT_PAREN, "Expect ')' after parameters.");
@@ -213,13 +376,17 @@ public class Parser {
         var expression = or();
 
         if (match(EQUAL)) {
-            var equals = previous();
+            var equals = current - 1;
             var value = expression();
 
             if (expression instanceof Expression.VariableExpression(Token name)) {
                 return new Expression.AssignExpression(name, value);
+            } else if (expression instanceof Expression.GetExpression(var object, var name, var _)) {
+                return new Expression.SetExpression(object, name, value, new Cache());
+            } else if (expression instanceof Expression.IndexExpression(var object, var bracket, var index)) {
+                return new Expression.IndexSetExpression(object, bracket, index, value);
             } else {
-                error(equals, "Invalid assignment target.");
+                error(tokens.get(equals), "Invalid assignment target.");
             }
         }
         return expression;
@@ -285,6 +452,13 @@ public class Parser {
         while (true) {
             if (match(LEFT_PAREN)) {
                 expression = finishCall(expression);
+            } else if (match(DOT)) {
+                var name = consumeToken(IDENTIFIER, "Expect property name after '.'.");
+                expression = new Expression.GetExpression(expression, name, new Cache());
+            } else if (match(LEFT_BRACKET)) {
+                var index = expression();
+                var bracket = consumeToken(RIGHT_BRACKET, "Expect ']' after index.");
+                expression = new Expression.IndexExpression(expression, bracket, index);
             } else {
                 break;
             }
@@ -302,7 +476,7 @@ public class Parser {
                 arguments.add(expression());
             } while (match(COMMA));
         }
-        var paren = consume(RIGHT_PAREN, "Expect ')' after arguments." );
+        var paren = consumeToken(RIGHT_PAREN, "Expect ')' after arguments." );
         return new Expression.CallExpression(expression, paren, arguments);
     }
 
@@ -310,25 +484,64 @@ public class Parser {
         if (match(FALSE)) return new Expression.LiteralExpression(false);
         if (match(TRUE)) return new Expression.LiteralExpression(true);
         if (match(NIL)) return new Expression.LiteralExpression(null);
-        if (match(NUMBER, STRING)) return new Expression.LiteralExpression(previous().literal());
+        if (match(NUMBER, STRING)) return new Expression.LiteralExpression(tokens.literal(current - 1));
+        if (match(THIS)) return new Expression.ThisExpression(previous());
         if (match(IDENTIFIER)) return new Expression.VariableExpression(previous());
 
+        if (match(SUPER)) {
+            var keyword = previous();
+            consume(DOT, "Expect '.' after 'super'.");
+            var method = consumeToken(IDENTIFIER, "Expect superclass method name.");
+            return new Expression.SuperExpression(keyword, method);
+        }
+
         if (match(LEFT_PAREN)) {
             var expression = expression();
             consume(RIGHT_PAREN, "Expect ')' after expression");
             return new Expression.GroupingExpression(expression);
         }
 
+        if (match(LEFT_BRACKET)) return list();
+        if (match(LEFT_BRACE)) return map();
+
         throw error(peek(), "Expect expression.");
     }
 
 
+    private Expression list() {
+        var bracket = previous();
+        var elements = new ArrayList<Expression>();
+        if (!check(RIGHT_BRACKET)) {
+            do {
+                elements.add(expression());
+            } while (match(COMMA));
+        }
+        consume(RIGHT_BRACKET, "Expect ']' after list elements.");
+        return new Expression.ListExpression(bracket, elements);
+    }
+
+    private Expression map() {
+        var brace = previous();
+        var keys = new ArrayList<Expression>();
+        var values = new ArrayList<Expression>();
+        if (!check(RIGHT_BRACE)) {
+            do {
+                keys.add(expression());
+                consume(COLON, "Expect ':' after map key.");
+                values.add(expression());
+            } while (match(COMMA));
+        }
+        consume(RIGHT_BRACE, "Expect '}' after map entries.");
+        return new Expression.MapExpression(brace, keys, values);
+    }
+
     private void synchronize() {
+        doctor.recovered(tokens.line(current));
         advance();
         while (!isEOF()) {
-            if (previous().type() == SEMICOLON) return;
-            switch (peek().type()) {
-                case CLASS, FUN, VAR, FOR, IF, WHILE, PRINT, RETURN -> {
+            if (tokens.type(current - 1) == SEMICOLON) return;
+            switch (tokens.type(current)) {
+                case CLASS, FUN, VAR, FOR, IF, IMPORT, WHILE, PRINT, RETURN -> {
                     return;
                 }
             }
@@ -346,22 +559,26 @@ public class Parser {
         return false;
     }
 
-    private Token consume(TokenType type, String message) {
-        if (check(type)) {
-            advance();
-            return previous();
-        }
-        throw error(peek(), message);
+    private void consume(TokenType type, String message) {
+        if (!check(type)) throw error(peek(), message);
+        advance();
+    }
+
+    /**
+     * Consumes a token that the AST keeps, the others are only checked by type and never materialized.
+     */
+    private Token consumeToken(TokenType type, String message) {
+        consume(type, message);
+        return previous();
     }
 
     private boolean check(TokenType type) {
         if (isEOF()) return false;
-        return peek().type() == type;
+        return tokens.type(current) == type;
     }
 
-    private Token advance() {
+    private void advance() {
         if (!isEOF()) current++;
-        return peek();
     }
 
     private Token peek() {
@@ -373,7 +590,7 @@ public class Parser {
     }
 
     private boolean isEOF() {
-        return peek().type() == EOF;
+        return current >= end || tokens.type(current) == EOF;
     }
 
     private ParseError error(Token token, String message) {
@@ -382,5 +599,7 @@ public class Parser {
     }
 
     private static class ParseError extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
     }
 }
@@ -2,116 +2,417 @@ package parser;
 
 import scanner.Token;
 
+import java.io.Serializable;
 import java.util.List;
 
-public sealed interface Statement {
+public sealed interface Statement extends Serializable {
 
     <R> R accept(Visitor<R> visitor);
 
+    /**
+     * Index of the node type in the order of {@link Visitor}, the {@code TAG} of its record.
+     */
+    int tag();
+
+    /**
+     * Same as {@link #accept} with a switch over {@link #tag()} instead of a virtual call.
+     */
+    static <R> R dispatch(Statement node, Visitor<R> visitor) {
+        return switch (node.tag()) {
+            case BlockStatement.TAG -> visitor.visit((BlockStatement) node);
+            case ClassStatement.TAG -> visitor.visit((ClassStatement) node);
+            case ExpressionStatement.TAG -> visitor.visit((ExpressionStatement) node);
+            case FunctionStatement.TAG -> visitor.visit((FunctionStatement) node);
+            case HoistedWhileStatement.TAG -> visitor.visit((HoistedWhileStatement) node);
+            case IfStatement.TAG -> visitor.visit((IfStatement) node);
+            case ImportStatement.TAG -> visitor.visit((ImportStatement) node);
+            case IncrementStatement.TAG -> visitor.visit((IncrementStatement) node);
+            case MemoizedFunctionStatement.TAG -> visitor.visit((MemoizedFunctionStatement) node);
+            case LazyBodyStatement.TAG -> visitor.visit((LazyBodyStatement) node);
+            case PrintStatement.TAG -> visitor.visit((PrintStatement) node);
+            case PrintVariableStatement.TAG -> visitor.visit((PrintVariableStatement) node);
+            case ReturnStatement.TAG -> visitor.visit((ReturnStatement) node);
+            case VarStatement.TAG -> visitor.visit((VarStatement) node);
+            case WhileStatement.TAG -> visitor.visit((WhileStatement) node);
+            default -> throw new IllegalStateException("Unknown tag " + node.tag());
+        };
+    }
+
     interface Visitor<R> {
         R visit(BlockStatement it);
+        R visit(ClassStatement it);
         R visit(ExpressionStatement it);
         R visit(FunctionStatement it);
+        R visit(HoistedWhileStatement it);
         R visit(IfStatement it);
+        R visit(ImportStatement it);
+        R visit(IncrementStatement it);
+        R visit(MemoizedFunctionStatement it);
+        R visit(LazyBodyStatement it);
         R visit(PrintStatement it);
+        R visit(PrintVariableStatement it);
         R visit(ReturnStatement it);
         R visit(VarStatement it);
         R visit(WhileStatement it);
     }
 
     record BlockStatement(List<Statement> statements) implements Statement {
+        public static final int TAG = 0;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record ClassStatement(Token name, Expression.VariableExpression superclass, List<FunctionStatement> methods, Cache cache) implements Statement {
+        public static final int TAG = 1;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record ExpressionStatement(Expression expression) implements Statement {
+        public static final int TAG = 2;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record FunctionStatement(Token name, List<Token> parameters, List<Statement> body) implements Statement {
+        public static final int TAG = 3;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record HoistedWhileStatement(WhileStatement loop, int invariants) implements Statement {
+        public static final int TAG = 4;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record IfStatement(Expression condition, Statement thenBranch, Statement elseBranch) implements Statement {
+        public static final int TAG = 5;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record ImportStatement(Token keyword, Token path) implements Statement {
+        public static final int TAG = 6;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record IncrementStatement(ExpressionStatement original, Token name, double step, int distance) implements Statement {
+        public static final int TAG = 7;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record MemoizedFunctionStatement(FunctionStatement function, int capacity) implements Statement {
+        public static final int TAG = 8;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record LazyBodyStatement(Token name, List<Token> parameters, LazyBody body) implements Statement {
+        public static final int TAG = 9;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record PrintStatement(Expression expression) implements Statement {
+        public static final int TAG = 10;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    record PrintVariableStatement(PrintStatement original, Token name, int distance) implements Statement {
+        public static final int TAG = 11;
+    
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visit(this);
+        }
+    
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record ReturnStatement(Token keyword, Expression value) implements Statement {
+        public static final int TAG = 12;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
     record VarStatement(Token name, Expression initializer) implements Statement {
+        public static final int TAG = 13;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 
-    record WhileStatement(Expression condition, Statement body) implements Statement {
+    record WhileStatement(Token keyword, Expression condition, Statement body) implements Statement {
+        public static final int TAG = 14;
+    
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visit(this);
         }
     
+        @Override
+        public int tag() {
+            return TAG;
+        }
+    
         @Override
         public boolean equals(Object other) {
             return this == other;
         }
+    
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
     }
 }
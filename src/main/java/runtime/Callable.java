@@ -3,11 +3,16 @@ package runtime;
 import parser.Statement;
 import scanner.Token;
 
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Optional.ofNullable;
 
-public interface Callable {
+public interface Callable extends Serializable {
 
     default int length() {
         return 0;
@@ -17,16 +22,44 @@ public interface Callable {
 
     class DefaultCallable implements Callable {
 
+        @Serial
+        private static final long serialVersionUID = 1L;
+
         private final Token name;
+        // the parser only builds serializable lists
+        @SuppressWarnings("serial")
         private final List<Token> params;
+        @SuppressWarnings("serial")
         private final List<Statement> body;
         private final Environment closure;
+        private final boolean isInitializer;
+        private final Memo memo;
 
         public DefaultCallable(Token name, List<Token> params, List<Statement> body, Environment closure) {
+            this(name, params, body, closure, false);
+        }
+
+        DefaultCallable(Token name, List<Token> params, List<Statement> body, Environment closure, boolean isInitializer) {
+            this(name, params, body, closure, isInitializer, null);
+        }
+
+        DefaultCallable(Token name, List<Token> params, List<Statement> body, Environment closure, boolean isInitializer, Memo memo) {
             this.name = name;
             this.params = params;
             this.body = body;
             this.closure = closure;
+            this.isInitializer = isInitializer;
+            this.memo = memo;
+        }
+
+        DefaultCallable bind(Instance instance) {
+            var environment = closure.fork();
+            environment.define("this", instance);
+            return new DefaultCallable(name, params, body, environment, isInitializer);
+        }
+
+        boolean isDeclaredBy(Token name) {
+            return this.name == name;
         }
 
         public int length() {
@@ -35,15 +68,38 @@ public interface Callable {
 
         @Override
         public Object call(Runtime runtime, List<Object> args) {
+            if (memo == null || !Memo.isKey(args)) return run(runtime, args);
+            synchronized (memo) {
+                var result = memo.get(args);
+                if (result != null || memo.containsKey(args)) return result;
+            }
+            var result = run(runtime, args);
+            synchronized (memo) {
+                memo.put(args, result);
+            }
+            return result;
+        }
+
+        private Object run(Runtime runtime, List<Object> args) {
+            var result = invoke(runtime, args);
+            while (result instanceof TailCall(var function, var arguments)) {
+                result = function.invoke(runtime, arguments);
+            }
+            return result;
+        }
+
+        private Object invoke(Runtime runtime, List<Object> args) {
             try {
-                var environment = closure.fork();
+                var environment = runtime.fork(closure);
                 for (int i = 0; i < params.size(); i++) {
                     environment.define(params.get(i).lexeme(), args.get(i));
                 }
                 runtime.executeBlock(body, environment);
             } catch (Return it) {
+                if (isInitializer) return closure.getAt(0, "this");
                 return it.value;
             }
+            if (isInitializer) return closure.getAt(0, "this");
             return null;
         }
 
@@ -53,8 +109,133 @@ public interface Callable {
         }
     }
 
+    class ClassCallable implements Callable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        final Shape shape;
+        private final Token name;
+        // methods of the class and the inherited ones it does not override, a HashMap of functions
+        @SuppressWarnings("serial")
+        private final Map<String, DefaultCallable> methods;
+
+        /**
+         * @param shape root shape of the declaration the class was made by
+         */
+        ClassCallable(Token name, ClassCallable superclass, Map<String, DefaultCallable> methods, Shape shape) {
+            this.name = name;
+            this.methods = new HashMap<>();
+            if (superclass != null) this.methods.putAll(superclass.methods);
+            this.methods.putAll(methods);
+            this.shape = shape;
+        }
+
+        DefaultCallable findMethod(String name) {
+            return methods.get(name);
+        }
+
+        @Override
+        public int length() {
+            var initializer = findMethod("init");
+            return initializer == null ? 0 : initializer.length();
+        }
+
+        @Override
+        public Object call(Runtime runtime, List<Object> args) {
+            var instance = new Instance(this);
+            var initializer = findMethod("init");
+            if (initializer != null) {
+                initializer.bind(instance).call(runtime, args);
+            }
+            return instance;
+        }
+
+        @Override
+        public String toString() {
+            return name.lexeme();
+        }
+    }
+
+    /**
+     * Function implemented in Java. A {@link NativeError} thrown by the function is reported at the call site.
+     */
+    record NativeCallable(int length, NativeFunction function) implements Callable {
+
+        @Override
+        public Object call(Runtime runtime, List<Object> args) {
+            return function.apply(runtime, args);
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn>";
+        }
+    }
+
+    /**
+     * Least recently used results of a pure function, keyed by its arguments. Only numbers, strings, booleans and
+     * nil are used as keys, anything else compares by identity and may be mutated between calls. Lookups lock the
+     * memo since tasks share it, the function itself runs unlocked.
+     */
+    final class Memo extends LinkedHashMap<List<Object>, Object> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Memo(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        static boolean isKey(List<Object> args) {
+            for (var arg : args) {
+                if (arg != null && !(arg instanceof Double || arg instanceof String || arg instanceof Boolean)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+            return size() > capacity;
+        }
+
+        /**
+         * Cached results are not stored, a restored function starts with an empty memo.
+         */
+        @Serial
+        private Object writeReplace() {
+            return new Memo(capacity);
+        }
+    }
+
+    /**
+     * Body of a {@link NativeCallable}, serializable so that natives can be part of a snapshot.
+     */
+    interface NativeFunction extends Serializable {
+        Object apply(Runtime runtime, List<Object> args);
+    }
+
+    record TailCall(DefaultCallable function, List<Object> arguments) {
+    }
+
+    class NativeError extends RuntimeException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        NativeError(String message) {
+            super(message, null, false, false);
+        }
+    }
+
     class Return extends RuntimeException {
-        private final Object value;
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Object value;
 
         Return(Object value) {
             super(null, null, false, false);
@@ -0,0 +1,58 @@
+package runtime;
+
+import doctor.RuntimeError;
+import scanner.Token;
+
+import java.time.Duration;
+
+/**
+ * Lets another thread, or a wall-clock deadline, stop a running script. The {@link Runtime} polls the token at
+ * safepoints, so a cancelled script stops with a {@link RuntimeError} on the next loop back-edge or call.
+ */
+public final class Cancellation {
+
+    private volatile boolean cancelled;
+    private final long deadline;
+
+    private Cancellation(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public static Cancellation create() {
+        return new Cancellation(Long.MAX_VALUE);
+    }
+
+    public static Cancellation timeout(Duration timeout) {
+        return new Cancellation(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Reads the {@code lox.timeout} system property, a wall-clock timeout in milliseconds.
+     */
+    public static Cancellation fromSystemProperties() {
+        var timeout = Long.getLong("lox.timeout", 0);
+        return timeout > 0 ? timeout(Duration.ofMillis(timeout)) : create();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+
+    void check(Token token) {
+        var reason = reason();
+        if (reason != null) throw new RuntimeError(token, reason);
+    }
+
+    /**
+     * Why the script has to stop, or {@code null} if it can go on.
+     */
+    String reason() {
+        if (cancelled) return "Script cancelled.";
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) return "Script timed out.";
+        return null;
+    }
+}
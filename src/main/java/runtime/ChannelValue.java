@@ -0,0 +1,85 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded FIFO queue between tasks. {@code send} blocks while the channel is full and {@code receive} while it is
+ * empty. Once closed, sends fail and receives drain what is left and then return nil.
+ * <p>
+ * Blocking uses a lock rather than monitors, so a waiting virtual thread releases its carrier. Waits wake up every
+ * {@value #POLL_MILLIS} ms to poll the {@link Cancellation} of the waiting runtime.
+ */
+final class ChannelValue {
+
+    private static final long POLL_MILLIS = 10;
+
+    private final Object[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int size;
+    private boolean closed;
+
+    ChannelValue(int capacity) {
+        buffer = new Object[capacity];
+    }
+
+    void send(Object value, Cancellation cancellation) {
+        lock.lock();
+        try {
+            while (size == buffer.length && !closed) await(notFull, cancellation);
+            if (closed) throw new Callable.NativeError("Cannot send to a closed channel.");
+            buffer[(head + size) % buffer.length] = value;
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Object receive(Cancellation cancellation) {
+        lock.lock();
+        try {
+            while (size == 0 && !closed) await(notEmpty, cancellation);
+            if (size == 0) return null;
+            var value = buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            size--;
+            notFull.signal();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void await(Condition condition, Cancellation cancellation) {
+        var reason = cancellation.reason();
+        if (reason != null) throw new Callable.NativeError(reason);
+        try {
+            condition.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Callable.NativeError("Interrupted.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+}
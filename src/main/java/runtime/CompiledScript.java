@@ -0,0 +1,84 @@
+package runtime;
+
+import doctor.Diagnostic;
+import doctor.Doctor;
+import parser.Parser;
+import parser.Statement;
+import scanner.Scanner;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A script that is scanned, parsed, resolved and optimized once and can then be run any number of times, also from
+ * several threads at once. Runs share the statements and their sealed {@link Resolution}, neither of which changes
+ * after compilation, and the property caches on the statements, which are safe to share. Everything else, globals,
+ * output and diagnostics, belongs to a single run.
+ */
+public final class CompiledScript {
+
+    private final List<Statement> statements;
+    private final Resolution resolution;
+    private final List<Diagnostic> diagnostics;
+
+    private CompiledScript(List<Statement> statements, Resolution resolution, List<Diagnostic> diagnostics) {
+        this.statements = statements;
+        this.resolution = resolution;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Compiles {@code source}, syntax and resolve errors are returned by {@link #diagnostics()} instead of thrown.
+     */
+    public static CompiledScript compile(String source) {
+        var doctor = Doctor.collecting();
+        var resolution = new Resolution();
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(), System.out, resolution);
+        var statements = new Parser(new Scanner(source, doctor).scanTokens(), doctor).parseStatements();
+        new Resolver(runtime, doctor).resolve(statements);
+        if (!doctor.reports().isEmpty()) {
+            return new CompiledScript(List.of(), resolution.seal(), List.copyOf(doctor.reports()));
+        }
+        statements = new Optimizer(runtime).optimize(statements);
+        return new CompiledScript(List.copyOf(statements), resolution.seal(), List.of());
+    }
+
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    List<Statement> statements() {
+        return statements;
+    }
+
+    public Result run(PrintStream out) {
+        return run(out, Limits.none(), Cancellation.create());
+    }
+
+    /**
+     * Runs the script in fresh globals. A runtime error stops the run and is returned in the result.
+     *
+     * @throws IllegalStateException if the script did not compile
+     */
+    public Result run(PrintStream out, Limits limits, Cancellation cancellation) {
+        if (!diagnostics.isEmpty()) {
+            throw new IllegalStateException("Script has compile errors: " + diagnostics.getFirst());
+        }
+        var doctor = Doctor.collecting();
+        var runtime = new Runtime(doctor, limits, cancellation, out, resolution);
+        runtime.run(statements);
+        return new Result(runtime.globals.bindings(), List.copyOf(doctor.reports()));
+    }
+
+    /**
+     * @param globals     the globals the run left behind, natives included
+     * @param diagnostics the runtime error that stopped the run, if any
+     */
+    public record Result(Map<String, Object> globals, List<Diagnostic> diagnostics) {
+
+        public boolean isSuccess() {
+            return diagnostics.isEmpty();
+        }
+    }
+}
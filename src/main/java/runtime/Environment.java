@@ -3,10 +3,18 @@ package runtime;
 import doctor.RuntimeError;
 import scanner.Token;
 
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-class Environment {
+class Environment implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // values are Lox values, which are all serializable
+    @SuppressWarnings("serial")
     private final Map<String, Object> values = new HashMap<>();
     private final Environment parent;
 
@@ -18,6 +26,15 @@ class Environment {
         parent = null;
     }
 
+    /**
+     * A copy of the bindings of this environment with the same parent.
+     */
+    Environment copy() {
+        var copy = new Environment(parent);
+        copy.values.putAll(values);
+        return copy;
+    }
+
     Environment fork() {
         return new Environment(this);
     }
@@ -38,6 +55,10 @@ class Environment {
         values.put(name, value);
     }
 
+    Map<String, Object> bindings() {
+        return Collections.unmodifiableMap(values);
+    }
+
     Object get(Token name) {
         if (values.containsKey(name.lexeme()))
             return values.get(name.lexeme());
@@ -51,6 +72,10 @@ class Environment {
         return ancestor(distance).get(name);
     }
 
+    Object getAt(Integer distance, String name) {
+        return ancestor(distance).values.get(name);
+    }
+
     void assignAt(Integer distance, Token name, Object value) {
         ancestor(distance).define(name, value);
     }
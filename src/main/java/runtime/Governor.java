@@ -0,0 +1,134 @@
+package runtime;
+
+import doctor.RuntimeError;
+import scanner.Token;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the resources used by a single {@link Runtime}. Counters are bumped wherever the resource is used,
+ * but budgets are only checked at safepoints (calls and loop back-edges) which always have a token to report.
+ * Straight-line code between two safepoints is bounded by the size of the program.
+ * <p>
+ * The runtimes of spawned tasks and parallel chunks share the {@link Budget} of the runtime that started them. Each
+ * governor counts on its own and adds what it counted to the budget at its safepoints, only for the resources that
+ * are limited, so an unlimited resource costs no shared writes.
+ * <p>
+ * Safepoints are also where a script gives up its thread once it has used its {@link Limits#quantum()}:
+ * on a virtual thread {@link Thread#yield()} unmounts it and lets another script run on the carrier.
+ * The {@link Cancellation} token is polled there too, once every {@value #POLL_INTERVAL} safepoints.
+ */
+final class Governor {
+
+    private static final int POLL_INTERVAL = 1024;
+
+    private final int maxCallDepth;
+    private final long maxStatements;
+    private final long maxEnvironments;
+    private final long maxStringChars;
+    private final int maxTasks;
+    private final long quantum;
+    private final Cancellation cancellation;
+    private final Budget budget;
+
+    private int callDepth;
+    private long statements;
+    private long environments;
+    private long chargedStatements;
+    private long chargedEnvironments;
+    private long nextSlice;
+    private int nextPoll = POLL_INTERVAL;
+
+    Governor(Limits limits, Cancellation cancellation, Budget budget) {
+        this.maxCallDepth = limit(limits.callDepth());
+        this.maxStatements = limit(limits.statements());
+        this.maxEnvironments = limit(limits.environments());
+        this.maxStringChars = limit(limits.stringChars());
+        this.maxTasks = limit(limits.tasks());
+        this.quantum = limit(limits.quantum());
+        this.nextSlice = quantum;
+        this.cancellation = cancellation;
+        this.budget = budget;
+    }
+
+    Budget budget() {
+        return budget;
+    }
+
+    void enter(Token token) {
+        if (++callDepth > maxCallDepth) {
+            callDepth--;
+            throw new RuntimeError(token, "Stack overflow.");
+        }
+        safepoint(token);
+    }
+
+    void exit() {
+        callDepth--;
+    }
+
+    void statement() {
+        statements++;
+    }
+
+    void environment() {
+        environments++;
+    }
+
+    void safepoint(Token token) {
+        if (maxStatements != Long.MAX_VALUE) {
+            var total = budget.statements.addAndGet(statements - chargedStatements);
+            chargedStatements = statements;
+            if (total > maxStatements)
+                throw new RuntimeError(token, "Statement budget of %s exceeded.".formatted(maxStatements));
+        }
+        if (maxEnvironments != Long.MAX_VALUE) {
+            var total = budget.environments.addAndGet(environments - chargedEnvironments);
+            chargedEnvironments = environments;
+            if (total > maxEnvironments)
+                throw new RuntimeError(token, "Environment budget of %s exceeded.".formatted(maxEnvironments));
+        }
+        if (--nextPoll == 0) {
+            nextPoll = POLL_INTERVAL;
+            cancellation.check(token);
+        }
+        if (statements >= nextSlice) {
+            nextSlice = statements + quantum;
+            Thread.yield();
+        }
+    }
+
+    void concat(Token token, int length) {
+        if (maxStringChars == Long.MAX_VALUE) return;
+        if (budget.stringChars.addAndGet(length) > maxStringChars)
+            throw new RuntimeError(token, "String allocation budget of %s characters exceeded.".formatted(maxStringChars));
+    }
+
+    /**
+     * Counts a task about to be spawned.
+     */
+    void task() {
+        if (maxTasks == Integer.MAX_VALUE) return;
+        if (budget.tasks.incrementAndGet() > maxTasks)
+            throw new Callable.NativeError("Task budget of %s exceeded.".formatted(maxTasks));
+    }
+
+    private static long limit(long value) {
+        return value > 0 ? value : Long.MAX_VALUE;
+    }
+
+    private static int limit(int value) {
+        return value > 0 ? value : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Usage of a script together with its tasks and parallel chunks, written by governors on any thread.
+     */
+    static final class Budget {
+        private final AtomicLong statements = new AtomicLong();
+        private final AtomicLong environments = new AtomicLong();
+        private final AtomicLong stringChars = new AtomicLong();
+        private final AtomicInteger tasks = new AtomicInteger();
+    }
+}
@@ -0,0 +1,51 @@
+package runtime;
+
+import parser.Cache;
+
+import java.util.Arrays;
+
+/**
+ * Per-site cache of property lookups keyed by {@link Shape}. A site remembers up to {@value #POLYMORPHIC} shapes,
+ * once it sees more it is megamorphic and always takes the slow path. Entries are immutable and an array of them is
+ * never written after it is stored in the volatile {@link Cache}, so a site can be shared by runtimes on different
+ * threads. Concurrent adds may lose an entry, which is only looked up again.
+ */
+final class InlineCache {
+
+    private static final int POLYMORPHIC = 4;
+    private static final Entry[] EMPTY = new Entry[0];
+    private static final Entry[] MEGAMORPHIC = new Entry[0];
+
+    /**
+     * @param shape shape of the instance on which the lookup happened
+     * @param slot  field slot, or {@code -1} if the property is a method, which is looked up in the class of the
+     *              instance since classes made by one declaration share their shapes
+     * @param next  shape of the instance after a store, the same shape unless the store adds a field
+     */
+    record Entry(Shape shape, int slot, Shape next) {
+    }
+
+    private InlineCache() {
+    }
+
+    static Entry find(Cache cache, Shape shape) {
+        if (!(cache.get() instanceof Entry[] entries)) return null;
+        for (var entry : entries) {
+            if (entry.shape() == shape) return entry;
+        }
+        return null;
+    }
+
+    static void add(Cache cache, Entry entry) {
+        var entries = cache.get() instanceof Entry[] it ? it : EMPTY;
+        if (entries == MEGAMORPHIC) return;
+        if (entries.length == POLYMORPHIC) {
+            cache.set(MEGAMORPHIC);
+            return;
+        }
+        var next = Arrays.copyOf(entries, entries.length + 1);
+        next[entries.length] = entry;
+        // the copy is complete before the volatile store publishes it
+        cache.set(next);
+    }
+}
@@ -0,0 +1,73 @@
+package runtime;
+
+import doctor.RuntimeError;
+import parser.Cache;
+import scanner.Token;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+final class Instance implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Callable.ClassCallable klass;
+    private Shape shape;
+    // Lox values, which are all serializable
+    @SuppressWarnings("serial")
+    private Object[] fields = EMPTY;
+
+    Instance(Callable.ClassCallable klass) {
+        this.klass = klass;
+        this.shape = klass.shape;
+    }
+
+    Object get(Token name, Cache cache) {
+        var entry = InlineCache.find(cache, shape);
+        if (entry == null) {
+            entry = lookup(name);
+            InlineCache.add(cache, entry);
+        }
+        if (entry.slot() >= 0) return fields[entry.slot()];
+        return method(name).bind(this);
+    }
+
+    void set(Token name, Object value, Cache cache) {
+        var entry = InlineCache.find(cache, shape);
+        if (entry == null) {
+            var slot = shape.slot(name.lexeme());
+            entry = slot >= 0
+                    ? new InlineCache.Entry(shape, slot, shape)
+                    : new InlineCache.Entry(shape, shape.size(), shape.with(name.lexeme()));
+            InlineCache.add(cache, entry);
+        }
+        if (entry.slot() >= fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(4, fields.length * 2));
+        }
+        fields[entry.slot()] = value;
+        shape = entry.next();
+    }
+
+    private InlineCache.Entry lookup(Token name) {
+        var slot = shape.slot(name.lexeme());
+        if (slot >= 0) return new InlineCache.Entry(shape, slot, shape);
+
+        method(name);
+        return new InlineCache.Entry(shape, -1, shape);
+    }
+
+    private Callable.DefaultCallable method(Token name) {
+        var method = klass.findMethod(name.lexeme());
+        if (method == null) throw new RuntimeError(name, "Undefined property '%s'.".formatted(name.lexeme()));
+        return method;
+    }
+
+    @Override
+    public String toString() {
+        return klass + " instance";
+    }
+}
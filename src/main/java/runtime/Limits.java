@@ -0,0 +1,40 @@
+package runtime;
+
+/**
+ * Resource limits enforced by {@link Runtime} while a script runs. Zero means "no limit". Statements, environments,
+ * string characters and tasks are counted for a script together with the tasks it spawns and the chunks of its
+ * parallel natives; call depth and quantum hold for each of them alone.
+ *
+ * @param callDepth    maximum number of nested (non-tail) calls
+ * @param statements   maximum number of statements executed
+ * @param environments maximum number of environments allocated by blocks and calls
+ * @param stringChars  maximum number of characters allocated by string concatenation
+ * @param quantum      number of statements a script may execute before it yields its thread at the next safepoint,
+ *                     lets many scripts running on virtual threads share a few carrier threads fairly
+ * @param tasks        maximum number of tasks started by {@code spawn}
+ */
+public record Limits(int callDepth, long statements, long environments, long stringChars, long quantum, int tasks) {
+
+    public static Limits none() {
+        return new Limits(0, 0, 0, 0, 0, 0);
+    }
+
+    public Limits withQuantum(long quantum) {
+        return new Limits(callDepth, statements, environments, stringChars, quantum, tasks);
+    }
+
+    /**
+     * Reads {@code lox.limits.callDepth}, {@code lox.limits.statements}, {@code lox.limits.environments},
+     * {@code lox.limits.stringChars}, {@code lox.limits.quantum} and {@code lox.limits.tasks} system properties.
+     */
+    public static Limits fromSystemProperties() {
+        return new Limits(
+                Integer.getInteger("lox.limits.callDepth", 0),
+                Long.getLong("lox.limits.statements", 0),
+                Long.getLong("lox.limits.environments", 0),
+                Long.getLong("lox.limits.stringChars", 0),
+                Long.getLong("lox.limits.quantum", 0),
+                Integer.getInteger("lox.limits.tasks", 0)
+        );
+    }
+}
@@ -0,0 +1,79 @@
+package runtime;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable list. While it holds only numbers they are kept unboxed in a {@code double[]}; the first element of any
+ * other type moves the list to an {@code Object[]} for good.
+ */
+final class ListValue implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private double[] numbers;
+    // Lox values, which are all serializable
+    @SuppressWarnings("serial")
+    private Object[] values;
+    private int size;
+
+    ListValue(List<Object> elements) {
+        numbers = new double[Math.max(elements.size(), 4)];
+        for (var element : elements) add(element);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(int index) {
+        return numbers != null ? (Object) numbers[index] : values[index];
+    }
+
+    void set(int index, Object value) {
+        if (numbers != null && value instanceof Double number) {
+            numbers[index] = number;
+            return;
+        }
+        if (numbers != null) generalize();
+        values[index] = value;
+    }
+
+    void add(Object value) {
+        if (numbers != null && value instanceof Double number) {
+            if (size == numbers.length) numbers = Arrays.copyOf(numbers, size * 2);
+            numbers[size++] = number;
+            return;
+        }
+        if (numbers != null) generalize();
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    Object removeLast() {
+        var last = get(--size);
+        if (values != null) values[size] = null;
+        return last;
+    }
+
+    private void generalize() {
+        values = new Object[numbers.length];
+        for (int i = 0; i < size; i++) {
+            values[i] = numbers[i];
+        }
+        numbers = null;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(Runtime.stringify(get(i)));
+        }
+        return builder.append("]").toString();
+    }
+}
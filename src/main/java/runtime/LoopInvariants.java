@@ -0,0 +1,160 @@
+package runtime;
+
+import parser.Expression;
+import parser.Statement;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hoists pure sub-expressions of a loop whose variables are not assigned in it. A hoisted expression becomes an
+ * {@link Expression.InvariantExpression} that is evaluated the first time it is reached after the loop is entered
+ * and reused until the loop is left, so a loop that runs zero times or fails before reaching it behaves as before.
+ * <p>
+ * A call can assign any variable its closure sees, so loops with calls are left alone, inlined calls included: they
+ * fall back to a real call once the function they were inlined from is reassigned. Without calls no other code runs
+ * while the loop does, which makes the loop the only writer of its variables. Nested loops are not entered, anything
+ * in them that is invariant here is invariant there too and is hoisted by their own pass.
+ * <p>
+ * Variables are told apart by name and by their distance from the environment the loop runs in, the depth counts
+ * the blocks entered inside the loop. A variable resolved closer than that depth is declared inside the loop.
+ */
+final class LoopInvariants extends Optimizer {
+
+    private final Set<Variable> assigned = new HashSet<>();
+    private boolean hasCalls;
+    private boolean isHoisting;
+    private int depth;
+    private int slots;
+
+    private LoopInvariants(Runtime runtime) {
+        super(runtime);
+    }
+
+    static Statement hoist(Runtime runtime, Statement.WhileStatement loop) {
+        var invariants = new LoopInvariants(runtime);
+        invariants.expression(loop.condition());
+        invariants.statement(loop.body());
+        if (invariants.hasCalls) return loop;
+
+        invariants.isHoisting = true;
+        var condition = invariants.expression(loop.condition());
+        var body = invariants.statement(loop.body());
+        if (invariants.slots == 0) return loop;
+        return new Statement.HoistedWhileStatement(new Statement.WhileStatement(loop.keyword(), condition, body), invariants.slots);
+    }
+
+    @Override
+    Expression expression(Expression expression) {
+        if (isHoisting) {
+            if (isHoistable(expression)) return new Expression.InvariantExpression(expression, slots++);
+        } else if (expression instanceof Expression.CallExpression
+                || expression instanceof Expression.InlinedCallExpression) {
+            hasCalls = true;
+        } else if (expression instanceof Expression.AssignExpression assign) {
+            assign(assign.name().lexeme(), runtime.distance(assign));
+        }
+        return super.expression(expression);
+    }
+
+    @Override
+    public Statement visit(Statement.BlockStatement it) {
+        depth++;
+        try {
+            return super.visit(it);
+        } finally {
+            depth--;
+        }
+    }
+
+    @Override
+    public Statement visit(Statement.IncrementStatement it) {
+        if (!isHoisting) assign(it.name().lexeme(), it.distance());
+        return it;
+    }
+
+    /**
+     * An import binds globals, which can be any of the variables of the loop.
+     */
+    @Override
+    public Statement visit(Statement.ImportStatement it) {
+        if (!isHoisting) hasCalls = true;
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.WhileStatement it) {
+        if (!isHoisting) {
+            expression(it.condition());
+            statement(it.body());
+        }
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.HoistedWhileStatement it) {
+        if (!isHoisting) visit(it.loop());
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.InlinedCallExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.FunctionExpression it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.FunctionStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.ClassStatement it) {
+        return it;
+    }
+
+    private void assign(String name, int distance) {
+        if (distance < 0) {
+            assigned.add(new Variable(name, -1));
+        } else if (distance >= depth) {
+            assigned.add(new Variable(name, distance - depth));
+        }
+    }
+
+    private boolean isHoistable(Expression expression) {
+        return switch (expression) {
+            case Expression.BinaryExpression _, Expression.CompareExpression _, Expression.LogicalExpression _,
+                 Expression.TernaryExpression _, Expression.UnaryExpression _ -> isInvariant(expression);
+            case Expression.GroupingExpression it -> isHoistable(it.expression());
+            default -> false;
+        };
+    }
+
+    private boolean isInvariant(Expression expression) {
+        return switch (expression) {
+            case Expression.LiteralExpression _, Expression.ThisExpression _ -> true;
+            case Expression.VariableExpression it -> isInvariant(it);
+            case Expression.GroupingExpression it -> isInvariant(it.expression());
+            case Expression.UnaryExpression it -> isInvariant(it.right());
+            case Expression.BinaryExpression it -> isInvariant(it.left()) && isInvariant(it.right());
+            case Expression.LogicalExpression it -> isInvariant(it.left()) && isInvariant(it.right());
+            case Expression.CompareExpression it -> isInvariant(it.original());
+            case Expression.TernaryExpression it ->
+                    isInvariant(it.condition()) && isInvariant(it.thenBranch()) && isInvariant(it.elseBranch());
+            default -> false;
+        };
+    }
+
+    private boolean isInvariant(Expression.VariableExpression variable) {
+        var distance = runtime.distance(variable);
+        if (distance < 0) return !assigned.contains(new Variable(variable.name().lexeme(), -1));
+        return distance >= depth && !assigned.contains(new Variable(variable.name().lexeme(), distance - depth));
+    }
+
+    private record Variable(String name, int distance) {
+    }
+}
@@ -0,0 +1,225 @@
+package runtime;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Insertion-ordered hash map. Entries are appended to dense arrays and an open-addressing table of entry indices
+ * points into them. Keys are stored as {@code String[]} while all of them are strings, as {@code double[]} while all
+ * of them are numbers, and as {@code Object[]} once they are mixed. The hashes of the specialized modes are the
+ * ones {@link Objects#hashCode} gives for the boxed keys, so generalizing does not rehash.
+ */
+final class MapValue implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int EMPTY = -1;
+    private static final int DELETED = -2;
+
+    private Mode mode = Mode.EMPTY;
+    private String[] strings;
+    private double[] numbers;
+    // keys and values are Lox values, which are all serializable
+    @SuppressWarnings("serial")
+    private Object[] objects;
+    @SuppressWarnings("serial")
+    private Object[] values = new Object[4];
+    private int[] index = empty(8);
+    private int count;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    Object get(Object key) {
+        var slot = slot(key);
+        return slot < 0 ? null : values[index[slot]];
+    }
+
+    boolean has(Object key) {
+        return slot(key) >= 0;
+    }
+
+    void put(Object key, Object value) {
+        var slot = slot(key);
+        if (slot >= 0) {
+            values[index[slot]] = value;
+            return;
+        }
+
+        adapt(key);
+        if (count == values.length) grow();
+        switch (mode) {
+            case STRING -> strings[count] = (String) key;
+            case NUMBER -> numbers[count] = (Double) key;
+            default -> objects[count] = key;
+        }
+        values[count] = value;
+        insert(hash(key), count);
+        count++;
+        size++;
+        if (2 * count > index.length) rehash(index.length * 2);
+    }
+
+    Object remove(Object key) {
+        var slot = slot(key);
+        if (slot < 0) return null;
+        var entry = index[slot];
+        var value = values[entry];
+        index[slot] = DELETED;
+        values[entry] = Tombstone.REMOVED;
+        if (mode == Mode.STRING) strings[entry] = null;
+        if (mode == Mode.OBJECT) objects[entry] = null;
+        size--;
+        return value;
+    }
+
+    ListValue keys() {
+        var keys = new ArrayList<>(size);
+        for (int i = 0; i < count; i++) {
+            if (values[i] != Tombstone.REMOVED) keys.add(key(i));
+        }
+        return new ListValue(keys);
+    }
+
+    private Object key(int entry) {
+        return switch (mode) {
+            case STRING -> strings[entry];
+            case NUMBER -> numbers[entry];
+            default -> objects[entry];
+        };
+    }
+
+    private int slot(Object key) {
+        if (!accepts(key)) return -1;
+        var mask = index.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            var entry = index[i];
+            if (entry == EMPTY) return -1;
+            if (entry != DELETED && matches(entry, key)) return i;
+        }
+    }
+
+    private boolean accepts(Object key) {
+        return switch (mode) {
+            case EMPTY -> false;
+            case STRING -> key instanceof String;
+            case NUMBER -> key instanceof Double;
+            case OBJECT -> true;
+        };
+    }
+
+    private boolean matches(int entry, Object key) {
+        return switch (mode) {
+            case STRING -> strings[entry].equals(key);
+            case NUMBER -> Double.doubleToLongBits(numbers[entry]) == Double.doubleToLongBits((Double) key);
+            default -> Objects.equals(objects[entry], key);
+        };
+    }
+
+    private void adapt(Object key) {
+        if (mode == Mode.EMPTY) {
+            if (key instanceof String) {
+                mode = Mode.STRING;
+                strings = new String[values.length];
+            } else if (key instanceof Double) {
+                mode = Mode.NUMBER;
+                numbers = new double[values.length];
+            } else {
+                mode = Mode.OBJECT;
+                objects = new Object[values.length];
+            }
+        } else if (!accepts(key)) {
+            objects = new Object[values.length];
+            for (int i = 0; i < count; i++) {
+                if (values[i] != Tombstone.REMOVED) objects[i] = key(i);
+            }
+            strings = null;
+            numbers = null;
+            mode = Mode.OBJECT;
+        }
+    }
+
+    private void grow() {
+        if (size < count / 2) {
+            compact();
+            return;
+        }
+        var capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        if (strings != null) strings = Arrays.copyOf(strings, capacity);
+        if (numbers != null) numbers = Arrays.copyOf(numbers, capacity);
+        if (objects != null) objects = Arrays.copyOf(objects, capacity);
+    }
+
+    private void compact() {
+        var live = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[i] == Tombstone.REMOVED) continue;
+            values[live] = values[i];
+            if (strings != null) strings[live] = strings[i];
+            if (numbers != null) numbers[live] = numbers[i];
+            if (objects != null) objects[live] = objects[i];
+            live++;
+        }
+        Arrays.fill(values, live, count, null);
+        if (strings != null) Arrays.fill(strings, live, count, null);
+        if (objects != null) Arrays.fill(objects, live, count, null);
+        count = live;
+        rehash(index.length);
+    }
+
+    private void rehash(int capacity) {
+        index = empty(capacity);
+        for (int i = 0; i < count; i++) {
+            if (values[i] != Tombstone.REMOVED) insert(hash(key(i)), i);
+        }
+    }
+
+    private void insert(int hash, int entry) {
+        var mask = index.length - 1;
+        var i = hash & mask;
+        while (index[i] >= 0) i = (i + 1) & mask;
+        index[i] = entry;
+    }
+
+    private static int hash(Object key) {
+        var hash = Objects.hashCode(key);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int[] empty(int capacity) {
+        var index = new int[capacity];
+        Arrays.fill(index, EMPTY);
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("{");
+        var first = true;
+        for (int i = 0; i < count; i++) {
+            if (values[i] == Tombstone.REMOVED) continue;
+            if (!first) builder.append(", ");
+            builder.append(Runtime.stringify(key(i))).append(": ").append(Runtime.stringify(values[i]));
+            first = false;
+        }
+        return builder.append("}").toString();
+    }
+
+    private enum Mode {
+        EMPTY, STRING, NUMBER, OBJECT
+    }
+
+    /**
+     * Marks the value of a removed entry, an enum so that it stays the same object when deserialized.
+     */
+    private enum Tombstone {
+        REMOVED
+    }
+}
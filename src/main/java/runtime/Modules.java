@@ -0,0 +1,78 @@
+package runtime;
+
+import doctor.Doctor;
+import doctor.RuntimeError;
+import parser.Parser;
+import parser.Statement;
+import scanner.Scanner;
+import scanner.Token;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Modules loaded by {@code import}, shared by every runtime of the process. A module is scanned, parsed, resolved and
+ * optimized once, the first time any script imports it, and its sealed program is what is shared. Each runtime that
+ * imports a module runs it itself, under its own limits and cancellation and printing to its own output, in globals
+ * of its own. What the module leaves in them are its exports; they are copied into the globals of the importer.
+ * <p>
+ * Paths are resolved against the working directory, so a module has the same identity in every importer. Loading is
+ * locked per path, so importers of different modules do not wait for each other.
+ */
+final class Modules {
+
+    private static final Map<Path, Slot> modules = new ConcurrentHashMap<>();
+
+    private Modules() {
+    }
+
+    static Module load(Token keyword, String name) {
+        var path = Path.of(name).toAbsolutePath().normalize();
+        var slot = modules.computeIfAbsent(path, _ -> new Slot());
+        slot.lock.lock();
+        try {
+            if (slot.module == null) slot.module = compile(keyword, name, path);
+            return slot.module;
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    private static Module compile(Token keyword, String name, Path path) {
+        String source;
+        try {
+            source = Files.readString(path);
+        } catch (IOException e) {
+            throw new RuntimeError(keyword, "Could not read module '%s'.".formatted(name));
+        }
+
+        var doctor = Doctor.collecting();
+        var resolution = new Resolution();
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(), System.out, resolution);
+        var statements = new Parser(new Scanner(source, doctor).scanTokens(), doctor).parseStatements();
+        new Resolver(runtime, doctor).resolve(statements);
+        if (!doctor.reports().isEmpty()) {
+            var error = doctor.reports().getFirst();
+            throw new RuntimeError(keyword, error(name, error.line(), error.message()));
+        }
+        statements = new Optimizer(runtime).optimize(statements);
+        return new Module(List.copyOf(statements), resolution.seal());
+    }
+
+    static String error(String name, int line, String message) {
+        return "Error in module '%s' at line %d: %s".formatted(name, line, message);
+    }
+
+    record Module(List<Statement> statements, Resolution resolution) {
+    }
+
+    private static final class Slot {
+        final ReentrantLock lock = new ReentrantLock();
+        Module module;
+    }
+}
@@ -0,0 +1,522 @@
+package runtime;
+
+import parser.Expression;
+import parser.Statement;
+import scanner.Token;
+import scanner.TokenType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites resolved statements before they are run. Nodes are rebuilt only when one of their children changed, a
+ * rebuilt expression takes over what the resolver recorded for the original one.
+ * <p>
+ * Frequent shapes are fused into superinstructions that do their work in a single dispatch: {@code i = i + 1} on a
+ * variable, comparisons between variables and number literals, and {@code print} of a variable. Each of them keeps
+ * its original node and falls back to it whenever an operand is not a number.
+ * <p>
+ * Loops get their invariant sub-expressions hoisted by {@link LoopInvariants}.
+ * <p>
+ * Calls to small global functions whose body is a single {@code return} are inlined: the call site evaluates the
+ * returned expression with its parameters read from the evaluated arguments, without an environment or a
+ * {@link Callable.Return}. The call still goes through the function if the global has been bound to anything else.
+ * <p>
+ * When memoization is on, top-level functions found pure by {@link Purity} keep a bounded cache of their results.
+ * Purity only sees the statements it is given, so memoization is for statements that are the whole program: code
+ * that runs later, e.g. the next input of a REPL or a script run after a snapshot, could rebind a global that a
+ * memoized function calls.
+ */
+public class Optimizer implements Expression.Visitor<Expression>, Statement.Visitor<Statement> {
+
+    private static final int INLINE_SIZE = 32;
+
+    final Runtime runtime;
+    private final Map<String, Statement.FunctionStatement> helpers;
+    private final Set<Statement.FunctionStatement> inlining;
+
+    private final int memoize;
+
+    public Optimizer(Runtime runtime) {
+        this(runtime, 0);
+    }
+
+    /**
+     * @param memoize number of results cached by each pure top-level function, memoization is off when 0
+     */
+    public Optimizer(Runtime runtime, int memoize) {
+        this(runtime, new HashMap<>(), new HashSet<>(), memoize);
+    }
+
+    private Optimizer(Runtime runtime, Map<String, Statement.FunctionStatement> helpers,
+                      Set<Statement.FunctionStatement> inlining, int memoize) {
+        this.runtime = runtime;
+        this.helpers = helpers;
+        this.inlining = inlining;
+        this.memoize = memoize;
+    }
+
+    public List<Statement> optimize(List<Statement> statements) {
+        for (var statement : statements) {
+            if (statement instanceof Statement.FunctionStatement function) {
+                if (isInlinable(function)) {
+                    helpers.put(function.name().lexeme(), function);
+                } else {
+                    helpers.remove(function.name().lexeme());
+                }
+            }
+        }
+        var output = statements(statements);
+        if (memoize == 0) return output;
+
+        var pure = Purity.analyze(runtime, statements);
+        if (pure.isEmpty()) return output;
+        output = new ArrayList<>(output);
+        for (int i = 0; i < statements.size(); i++) {
+            if (pure.contains(statements.get(i))) {
+                var function = (Statement.FunctionStatement) output.get(i);
+                output.set(i, new Statement.MemoizedFunctionStatement(function, memoize));
+            }
+        }
+        return output;
+    }
+
+    public Expression optimize(Expression expression) {
+        return expression(expression);
+    }
+
+    @Override
+    public Expression visit(Expression.TernaryExpression it) {
+        var condition = expression(it.condition());
+        var thenBranch = expression(it.thenBranch());
+        var elseBranch = expression(it.elseBranch());
+        if (condition == it.condition() && thenBranch == it.thenBranch() && elseBranch == it.elseBranch()) return it;
+        return replace(it, new Expression.TernaryExpression(condition, thenBranch, elseBranch));
+    }
+
+    @Override
+    public Expression visit(Expression.AssignExpression it) {
+        var value = expression(it.value());
+        if (value == it.value()) return it;
+        return replace(it, new Expression.AssignExpression(it.name(), value));
+    }
+
+    @Override
+    public Expression visit(Expression.ArgumentExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.BinaryExpression it) {
+        var left = expression(it.left());
+        var right = expression(it.right());
+        var binary = it;
+        if (left != it.left() || right != it.right()) {
+            binary = new Expression.BinaryExpression(left, it.operator(), right);
+        }
+
+        if (isComparison(binary.operator().type()) && isOperand(left) && isOperand(right)) {
+            return new Expression.CompareExpression(binary, runtime.distance(left), runtime.distance(right));
+        }
+        return binary;
+    }
+
+    @Override
+    public Expression visit(Expression.CallExpression it) {
+        var callee = expression(it.callee());
+        var arguments = expressions(it.arguments());
+        var call = it;
+        if (callee != it.callee() || arguments != it.arguments()) {
+            call = (Expression.CallExpression) replace(it, new Expression.CallExpression(callee, it.paren(), arguments));
+        }
+
+        if (!(callee instanceof Expression.VariableExpression variable) || runtime.distance(variable) >= 0) return call;
+        var function = helpers.get(variable.name().lexeme());
+        if (function == null || function.parameters().size() != arguments.size() || !inlining.add(function)) return call;
+        try {
+            var value = ((Statement.ReturnStatement) function.body().getFirst()).value();
+            var body = new Parameters(this, function.parameters()).expression(value);
+            return new Expression.InlinedCallExpression(call, function.name(), arguments, body);
+        } finally {
+            inlining.remove(function);
+        }
+    }
+
+    @Override
+    public Expression visit(Expression.CompareExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.FunctionExpression it) {
+        var body = statements(it.body());
+        if (body == it.body()) return it;
+        return replace(it, new Expression.FunctionExpression(it.name(), it.parameters(), body));
+    }
+
+    @Override
+    public Expression visit(Expression.GetExpression it) {
+        var object = expression(it.object());
+        if (object == it.object()) return it;
+        return replace(it, new Expression.GetExpression(object, it.name(), it.cache()));
+    }
+
+    @Override
+    public Expression visit(Expression.GroupingExpression it) {
+        var expression = expression(it.expression());
+        if (expression == it.expression()) return it;
+        return replace(it, new Expression.GroupingExpression(expression));
+    }
+
+    @Override
+    public Expression visit(Expression.IndexExpression it) {
+        var object = expression(it.object());
+        var index = expression(it.index());
+        if (object == it.object() && index == it.index()) return it;
+        return replace(it, new Expression.IndexExpression(object, it.bracket(), index));
+    }
+
+    @Override
+    public Expression visit(Expression.IndexSetExpression it) {
+        var object = expression(it.object());
+        var index = expression(it.index());
+        var value = expression(it.value());
+        if (object == it.object() && index == it.index() && value == it.value()) return it;
+        return replace(it, new Expression.IndexSetExpression(object, it.bracket(), index, value));
+    }
+
+    @Override
+    public Expression visit(Expression.InlinedCallExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.InvariantExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.ListExpression it) {
+        var elements = expressions(it.elements());
+        if (elements == it.elements()) return it;
+        return replace(it, new Expression.ListExpression(it.bracket(), elements));
+    }
+
+    @Override
+    public Expression visit(Expression.LogicalExpression it) {
+        var left = expression(it.left());
+        var right = expression(it.right());
+        if (left == it.left() && right == it.right()) return it;
+        return replace(it, new Expression.LogicalExpression(left, it.operator(), right));
+    }
+
+    @Override
+    public Expression visit(Expression.LiteralExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.MapExpression it) {
+        var keys = expressions(it.keys());
+        var values = expressions(it.values());
+        if (keys == it.keys() && values == it.values()) return it;
+        return replace(it, new Expression.MapExpression(it.brace(), keys, values));
+    }
+
+    @Override
+    public Expression visit(Expression.SetExpression it) {
+        var object = expression(it.object());
+        var value = expression(it.value());
+        if (object == it.object() && value == it.value()) return it;
+        return replace(it, new Expression.SetExpression(object, it.name(), value, it.cache()));
+    }
+
+    @Override
+    public Expression visit(Expression.SuperExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.ThisExpression it) {
+        return it;
+    }
+
+    @Override
+    public Expression visit(Expression.UnaryExpression it) {
+        var right = expression(it.right());
+        if (right == it.right()) return it;
+        return replace(it, new Expression.UnaryExpression(it.operator(), right));
+    }
+
+    @Override
+    public Expression visit(Expression.VariableExpression it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.BlockStatement it) {
+        var statements = statements(it.statements());
+        if (statements == it.statements()) return it;
+        return new Statement.BlockStatement(statements);
+    }
+
+    @Override
+    public Statement visit(Statement.ClassStatement it) {
+        var methods = new ArrayList<Statement.FunctionStatement>(it.methods().size());
+        var changed = false;
+        for (var method : it.methods()) {
+            var optimized = (Statement.FunctionStatement) method.accept(this);
+            changed |= optimized != method;
+            methods.add(optimized);
+        }
+        if (!changed) return it;
+        return new Statement.ClassStatement(it.name(), it.superclass(), methods, it.cache());
+    }
+
+    @Override
+    public Statement visit(Statement.ExpressionStatement it) {
+        var expression = expression(it.expression());
+        var statement = expression == it.expression() ? it : new Statement.ExpressionStatement(expression);
+
+        if (expression instanceof Expression.AssignExpression assign
+                && assign.value() instanceof Expression.BinaryExpression binary
+                && binary.left() instanceof Expression.VariableExpression variable
+                && variable.name().lexeme().equals(assign.name().lexeme())
+                && runtime.distance(variable) == runtime.distance(assign)
+                && binary.right() instanceof Expression.LiteralExpression(Double step)) {
+            var type = binary.operator().type();
+            if (type == TokenType.PLUS) {
+                return new Statement.IncrementStatement(statement, assign.name(), step, runtime.distance(assign));
+            }
+            if (type == TokenType.MINUS) {
+                return new Statement.IncrementStatement(statement, assign.name(), -step, runtime.distance(assign));
+            }
+        }
+        return statement;
+    }
+
+    @Override
+    public Statement visit(Statement.FunctionStatement it) {
+        var body = statements(it.body());
+        if (body == it.body()) return it;
+        return new Statement.FunctionStatement(it.name(), it.parameters(), body);
+    }
+
+    @Override
+    public Statement visit(Statement.HoistedWhileStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.IfStatement it) {
+        var condition = expression(it.condition());
+        var thenBranch = statement(it.thenBranch());
+        var elseBranch = it.elseBranch() == null ? null : statement(it.elseBranch());
+        if (condition == it.condition() && thenBranch == it.thenBranch() && elseBranch == it.elseBranch()) return it;
+        return new Statement.IfStatement(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Statement visit(Statement.ImportStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.IncrementStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.LazyBodyStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.MemoizedFunctionStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.PrintStatement it) {
+        var expression = expression(it.expression());
+        var statement = expression == it.expression() ? it : new Statement.PrintStatement(expression);
+        if (expression instanceof Expression.VariableExpression variable) {
+            return new Statement.PrintVariableStatement(statement, variable.name(), runtime.distance(variable));
+        }
+        return statement;
+    }
+
+    @Override
+    public Statement visit(Statement.PrintVariableStatement it) {
+        return it;
+    }
+
+    @Override
+    public Statement visit(Statement.ReturnStatement it) {
+        if (it.value() == null) return it;
+        var value = expression(it.value());
+        if (value == it.value()) return it;
+        return new Statement.ReturnStatement(it.keyword(), value);
+    }
+
+    @Override
+    public Statement visit(Statement.VarStatement it) {
+        if (it.initializer() == null) return it;
+        var initializer = expression(it.initializer());
+        if (initializer == it.initializer()) return it;
+        return new Statement.VarStatement(it.name(), initializer);
+    }
+
+    @Override
+    public Statement visit(Statement.WhileStatement it) {
+        var condition = expression(it.condition());
+        var body = statement(it.body());
+        var loop = it;
+        if (condition != it.condition() || body != it.body()) {
+            loop = new Statement.WhileStatement(it.keyword(), condition, body);
+        }
+        return LoopInvariants.hoist(runtime, loop);
+    }
+
+    private List<Statement> statements(List<Statement> statements) {
+        var output = (List<Statement>) null;
+        for (int i = 0; i < statements.size(); i++) {
+            var optimized = statement(statements.get(i));
+            if (output == null && optimized != statements.get(i)) {
+                output = new ArrayList<>(statements.subList(0, i));
+            }
+            if (output != null) output.add(optimized);
+        }
+        return output == null ? statements : output;
+    }
+
+    private List<Expression> expressions(List<Expression> expressions) {
+        var output = (List<Expression>) null;
+        for (int i = 0; i < expressions.size(); i++) {
+            var optimized = expression(expressions.get(i));
+            if (output == null && optimized != expressions.get(i)) {
+                output = new ArrayList<>(expressions.subList(0, i));
+            }
+            if (output != null) output.add(optimized);
+        }
+        return output == null ? expressions : output;
+    }
+
+    Statement statement(Statement statement) {
+        return statement.accept(this);
+    }
+
+    Expression expression(Expression expression) {
+        return expression.accept(this);
+    }
+
+    private Expression replace(Expression original, Expression replacement) {
+        runtime.replace(original, replacement);
+        return replacement;
+    }
+
+    /**
+     * A global function is inlined when its body returns a small expression that reads nothing but its parameters
+     * and globals, does not assign its parameters and does not call itself.
+     */
+    private boolean isInlinable(Statement.FunctionStatement function) {
+        if (function.body().size() != 1 || !(function.body().getFirst() instanceof Statement.ReturnStatement it)) {
+            return false;
+        }
+        return it.value() != null && size(function, it.value()) <= INLINE_SIZE;
+    }
+
+    /**
+     * Number of nodes in {@code expression}, or {@link Integer#MAX_VALUE} if it cannot be inlined.
+     */
+    private int size(Statement.FunctionStatement function, Expression expression) {
+        return switch (expression) {
+            case Expression.LiteralExpression _ -> 1;
+            case Expression.VariableExpression it -> {
+                var name = it.name().lexeme();
+                var distance = runtime.distance(it);
+                if (name.equals(function.name().lexeme())) yield Integer.MAX_VALUE;
+                yield distance < 0 || distance == 0 && isParameter(function, name) ? 1 : Integer.MAX_VALUE;
+            }
+            case Expression.AssignExpression it ->
+                    runtime.distance(it) < 0 ? sum(function, it.value()) : Integer.MAX_VALUE;
+            case Expression.GroupingExpression it -> sum(function, it.expression());
+            case Expression.UnaryExpression it -> sum(function, it.right());
+            case Expression.BinaryExpression it -> sum(function, it.left(), it.right());
+            case Expression.LogicalExpression it -> sum(function, it.left(), it.right());
+            case Expression.TernaryExpression it -> sum(function, it.condition(), it.thenBranch(), it.elseBranch());
+            case Expression.GetExpression it -> sum(function, it.object());
+            case Expression.SetExpression it -> sum(function, it.object(), it.value());
+            case Expression.IndexExpression it -> sum(function, it.object(), it.index());
+            case Expression.IndexSetExpression it -> sum(function, it.object(), it.index(), it.value());
+            case Expression.CallExpression it -> {
+                var size = sum(function, it.callee());
+                for (var argument : it.arguments()) size = add(size, size(function, argument));
+                yield size;
+            }
+            case Expression.ListExpression it -> {
+                var size = 1;
+                for (var element : it.elements()) size = add(size, size(function, element));
+                yield size;
+            }
+            default -> Integer.MAX_VALUE;
+        };
+    }
+
+    private int sum(Statement.FunctionStatement function, Expression... children) {
+        var size = 1;
+        for (var child : children) size = add(size, size(function, child));
+        return size;
+    }
+
+    private static int add(int a, int b) {
+        return a == Integer.MAX_VALUE || b == Integer.MAX_VALUE ? Integer.MAX_VALUE : a + b;
+    }
+
+    private static boolean isParameter(Statement.FunctionStatement function, String name) {
+        for (var parameter : function.parameters()) {
+            if (parameter.lexeme().equals(name)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isComparison(TokenType type) {
+        return switch (type) {
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL, EQUAL_EQUAL, BANG_EQUAL -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isOperand(Expression expression) {
+        return expression instanceof Expression.VariableExpression
+                || expression instanceof Expression.LiteralExpression(Double _);
+    }
+
+    /**
+     * Copies the body of an inlined function with its parameters replaced by the arguments of the call site.
+     */
+    private static final class Parameters extends Optimizer {
+
+        private final List<Token> parameters;
+
+        Parameters(Optimizer optimizer, List<Token> parameters) {
+            super(optimizer.runtime, optimizer.helpers, optimizer.inlining, 0);
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Expression visit(Expression.VariableExpression it) {
+            if (runtime.distance(it) != 0) return it;
+            for (int i = parameters.size() - 1; i >= 0; i--) {
+                if (parameters.get(i).lexeme().equals(it.name().lexeme())) {
+                    return new Expression.ArgumentExpression(it.name(), i);
+                }
+            }
+            return it;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package runtime;
+
+import doctor.RuntimeError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Natives that apply a function to every element of a list, or to every index below a number, on the common
+ * {@link ForkJoinPool}. The elements are split into chunks, a chunk is run by a runtime of its own made like the one
+ * of a spawned task, so the function must not depend on the order of its calls or on globals assigned by them.
+ * What the chunks use counts against the limits of the caller, and they share its cancellation.
+ * <p>
+ * An error stops the whole call, the first failed chunk in element order is the one reported.
+ */
+final class Parallel {
+
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private Parallel() {
+    }
+
+    static ListValue map(Runtime runtime, Object source, Object function) {
+        var elements = elements(source);
+        var callable = callable(function, 1);
+        var output = new ArrayList<>(elements.length);
+        for (var chunk : chunks(runtime, elements, (task, from, to) -> {
+            var values = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) values.add(callable.call(task, Arrays.asList(elements[i])));
+            return values;
+        })) {
+            output.addAll(chunk);
+        }
+        return new ListValue(output);
+    }
+
+    static ListValue filter(Runtime runtime, Object source, Object function) {
+        var elements = elements(source);
+        var callable = callable(function, 1);
+        var output = new ArrayList<>();
+        for (var chunk : chunks(runtime, elements, (task, from, to) -> {
+            var values = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (Runtime.isTruthy(callable.call(task, Arrays.asList(elements[i])))) values.add(elements[i]);
+            }
+            return values;
+        })) {
+            output.addAll(chunk);
+        }
+        return new ListValue(output);
+    }
+
+    /**
+     * Each chunk is folded starting from {@code initial}, then the results of the chunks are folded in order. This
+     * gives the sequential result as long as the function is associative and {@code initial} is its identity.
+     */
+    static Object reduce(Runtime runtime, Object source, Object function, Object initial) {
+        var elements = elements(source);
+        var callable = callable(function, 2);
+        var result = initial;
+        for (var chunk : chunks(runtime, elements, (task, from, to) -> {
+            var value = initial;
+            for (int i = from; i < to; i++) value = callable.call(task, Arrays.asList(value, elements[i]));
+            return Arrays.asList(value);
+        })) {
+            result = callable.call(runtime, Arrays.asList(result, chunk.getFirst()));
+        }
+        return result;
+    }
+
+    private static List<List<Object>> chunks(Runtime runtime, Object[] elements, Chunk chunk) {
+        var pool = ForkJoinPool.commonPool();
+        var size = Math.max(1, elements.length / (pool.getParallelism() * CHUNKS_PER_WORKER));
+        var futures = new ArrayList<Future<List<Object>>>();
+        for (int from = 0; from < elements.length; from += size) {
+            var start = from;
+            var end = Math.min(elements.length, from + size);
+            var task = runtime.task();
+            futures.add(pool.submit(() -> chunk.run(task, start, end)));
+        }
+
+        var output = new ArrayList<List<Object>>(futures.size());
+        for (var future : futures) {
+            try {
+                output.add(future.get());
+            } catch (ExecutionException e) {
+                futures.forEach(it -> it.cancel(false));
+                throw switch (e.getCause()) {
+                    case RuntimeError it -> it;
+                    case Callable.NativeError it -> it;
+                    case StackOverflowError _ -> new Callable.NativeError("Stack overflow.");
+                    case Throwable it -> new Callable.NativeError(it.toString());
+                };
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new Callable.NativeError("Interrupted.");
+            }
+        }
+        return output;
+    }
+
+    private static Object[] elements(Object source) {
+        if (source instanceof ListValue list) {
+            var elements = new Object[list.size()];
+            for (int i = 0; i < elements.length; i++) elements[i] = list.get(i);
+            return elements;
+        }
+        if (source instanceof Double count && count >= 0 && count == Math.floor(count)) {
+            var elements = new Object[count.intValue()];
+            for (int i = 0; i < elements.length; i++) elements[i] = (double) i;
+            return elements;
+        }
+        throw new Callable.NativeError("Argument must be a list or a non-negative integer.");
+    }
+
+    private static Callable callable(Object function, int length) {
+        if (function instanceof Callable callable && callable.length() == length) return callable;
+        throw new Callable.NativeError("Argument must be a function with %s parameter%s.".formatted(length, length == 1 ? "" : "s"));
+    }
+
+    private interface Chunk {
+        List<Object> run(Runtime runtime, int from, int to);
+    }
+}
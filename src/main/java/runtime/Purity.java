@@ -0,0 +1,328 @@
+package runtime;
+
+import parser.Expression;
+import parser.Statement;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the top-level functions whose result depends on nothing but their arguments. A pure function does not print,
+ * reads and writes only its own locals, creates no objects and no closures, and calls only global functions that are
+ * pure themselves. Those globals must be declared once and never assigned, otherwise the call could reach other code
+ * later on.
+ * <p>
+ * The whole program is walked, impure nodes included, so that every assignment to a global is seen. A program with
+ * imports has no pure functions.
+ */
+final class Purity implements Expression.Visitor<Boolean>, Statement.Visitor<Boolean> {
+
+    private final Runtime runtime;
+    private final Set<String> assigned = new HashSet<>();
+    private Set<String> callees = new HashSet<>();
+    private boolean inFunction;
+    private boolean hasImports;
+
+    private Purity(Runtime runtime) {
+        this.runtime = runtime;
+    }
+
+    static Set<Statement.FunctionStatement> analyze(Runtime runtime, List<Statement> statements) {
+        var purity = new Purity(runtime);
+        var declarations = new HashMap<String, Integer>();
+        var functions = new IdentityHashMap<Statement.FunctionStatement, Set<String>>();
+        for (var statement : statements) {
+            purity.callees = new HashSet<>();
+            var isPure = purity.statement(statement);
+            switch (statement) {
+                case Statement.FunctionStatement it -> {
+                    declarations.merge(it.name().lexeme(), 1, Integer::sum);
+                    if (isPure) functions.put(it, purity.callees);
+                }
+                case Statement.VarStatement it -> declarations.merge(it.name().lexeme(), 1, Integer::sum);
+                case Statement.ClassStatement it -> declarations.merge(it.name().lexeme(), 1, Integer::sum);
+                default -> {
+                }
+            }
+        }
+
+        var pure = Collections.<Statement.FunctionStatement>newSetFromMap(new IdentityHashMap<>());
+        if (purity.hasImports) return pure;
+        var names = new HashSet<String>();
+        for (var function : functions.keySet()) {
+            var name = function.name().lexeme();
+            if (declarations.get(name) == 1 && !purity.assigned.contains(name)) {
+                pure.add(function);
+                names.add(name);
+            }
+        }
+        var changed = true;
+        while (changed) {
+            changed = false;
+            for (var function : List.copyOf(pure)) {
+                if (!names.containsAll(functions.get(function))) {
+                    pure.remove(function);
+                    names.remove(function.name().lexeme());
+                    changed = true;
+                }
+            }
+        }
+        return pure;
+    }
+
+    @Override
+    public Boolean visit(Expression.TernaryExpression it) {
+        return expression(it.condition()) & expression(it.thenBranch()) & expression(it.elseBranch());
+    }
+
+    @Override
+    public Boolean visit(Expression.AssignExpression it) {
+        var isPure = expression(it.value());
+        if (runtime.distance(it) >= 0) return isPure;
+        assigned.add(it.name().lexeme());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.ArgumentExpression it) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.BinaryExpression it) {
+        return expression(it.left()) & expression(it.right());
+    }
+
+    @Override
+    public Boolean visit(Expression.CallExpression it) {
+        var isPure = true;
+        if (it.callee() instanceof Expression.VariableExpression callee && runtime.distance(callee) < 0) {
+            callees.add(callee.name().lexeme());
+        } else {
+            expression(it.callee());
+            isPure = false;
+        }
+        for (var argument : it.arguments()) {
+            isPure &= expression(argument);
+        }
+        return isPure;
+    }
+
+    @Override
+    public Boolean visit(Expression.CompareExpression it) {
+        return expression(it.original());
+    }
+
+    @Override
+    public Boolean visit(Expression.FunctionExpression it) {
+        statements(it.body());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.GetExpression it) {
+        expression(it.object());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.GroupingExpression it) {
+        return expression(it.expression());
+    }
+
+    @Override
+    public Boolean visit(Expression.IndexExpression it) {
+        expression(it.object());
+        expression(it.index());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.IndexSetExpression it) {
+        expression(it.object());
+        expression(it.index());
+        expression(it.value());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.InlinedCallExpression it) {
+        return expression(it.original());
+    }
+
+    @Override
+    public Boolean visit(Expression.InvariantExpression it) {
+        return expression(it.expression());
+    }
+
+    @Override
+    public Boolean visit(Expression.ListExpression it) {
+        expressions(it.elements());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.LogicalExpression it) {
+        return expression(it.left()) & expression(it.right());
+    }
+
+    @Override
+    public Boolean visit(Expression.LiteralExpression it) {
+        return true;
+    }
+
+    @Override
+    public Boolean visit(Expression.MapExpression it) {
+        expressions(it.keys());
+        expressions(it.values());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.SetExpression it) {
+        expression(it.object());
+        expression(it.value());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.SuperExpression it) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.ThisExpression it) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Expression.UnaryExpression it) {
+        return expression(it.right());
+    }
+
+    @Override
+    public Boolean visit(Expression.VariableExpression it) {
+        return runtime.distance(it) >= 0;
+    }
+
+    @Override
+    public Boolean visit(Statement.BlockStatement it) {
+        return statements(it.statements());
+    }
+
+    @Override
+    public Boolean visit(Statement.ClassStatement it) {
+        for (var method : it.methods()) {
+            statements(method.body());
+        }
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Statement.ExpressionStatement it) {
+        return expression(it.expression());
+    }
+
+    /**
+     * Only top-level functions are analyzed, their closure is the global environment. A nested function is a closure
+     * over the locals of the function declaring it.
+     */
+    @Override
+    public Boolean visit(Statement.FunctionStatement it) {
+        var isNested = inFunction;
+        inFunction = true;
+        var isPure = statements(it.body());
+        inFunction = isNested;
+        return isPure && !isNested;
+    }
+
+    @Override
+    public Boolean visit(Statement.HoistedWhileStatement it) {
+        return statement(it.loop());
+    }
+
+    @Override
+    public Boolean visit(Statement.IfStatement it) {
+        var isPure = expression(it.condition()) & statement(it.thenBranch());
+        return it.elseBranch() == null ? isPure : isPure & statement(it.elseBranch());
+    }
+
+    /**
+     * An import can bind any global, so no global is known to stay the same function.
+     */
+    @Override
+    public Boolean visit(Statement.ImportStatement it) {
+        hasImports = true;
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Statement.IncrementStatement it) {
+        return statement(it.original());
+    }
+
+    /**
+     * The body is not parsed yet, nothing is known about it.
+     */
+    @Override
+    public Boolean visit(Statement.LazyBodyStatement it) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Statement.MemoizedFunctionStatement it) {
+        return statement(it.function());
+    }
+
+    @Override
+    public Boolean visit(Statement.PrintStatement it) {
+        expression(it.expression());
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Statement.PrintVariableStatement it) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Statement.ReturnStatement it) {
+        return it.value() == null || expression(it.value());
+    }
+
+    @Override
+    public Boolean visit(Statement.VarStatement it) {
+        return it.initializer() == null || expression(it.initializer());
+    }
+
+    @Override
+    public Boolean visit(Statement.WhileStatement it) {
+        return expression(it.condition()) & statement(it.body());
+    }
+
+    private boolean statements(List<Statement> statements) {
+        var isPure = true;
+        for (var statement : statements) {
+            isPure &= statement(statement);
+        }
+        return isPure;
+    }
+
+    private void expressions(List<Expression> expressions) {
+        for (var expression : expressions) {
+            expression(expression);
+        }
+    }
+
+    private boolean statement(Statement statement) {
+        return statement.accept(this);
+    }
+
+    private boolean expression(Expression expression) {
+        return expression.accept(this);
+    }
+}
@@ -0,0 +1,144 @@
+package runtime;
+
+import parser.Expression;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What the {@link Resolver} records about a program: how many scopes away each local variable is declared and which
+ * calls are in tail position. Nodes are keyed by identity, a node rewritten by the {@link Optimizer} gets the entries
+ * of the node it replaces.
+ * <p>
+ * A resolution is filled while its program is resolved and optimized and then sealed. A sealed resolution is never
+ * written again, so runtimes on any number of threads can read it without synchronization. Code resolved later, e.g.
+ * an imported module, goes into a resolution that {@link #extend extends} the sealed ones: lookups fall through to
+ * them, so they are shared instead of copied.
+ */
+public final class Resolution implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of resolutions a lookup may go through before a chain is flattened into a single one.
+     */
+    private static final int MAX_CHAIN = 8;
+
+    // identity maps and immutable lists, all serializable
+    @SuppressWarnings("serial")
+    private final Map<Expression, Integer> locals = new IdentityHashMap<>();
+    @SuppressWarnings("serial")
+    private final Set<Expression> tailCalls = Collections.newSetFromMap(new IdentityHashMap<>());
+    @SuppressWarnings("serial")
+    private final List<Resolution> parents;
+    private final int chain;
+    private boolean sealed;
+
+    public Resolution() {
+        this(List.of());
+    }
+
+    private Resolution(List<Resolution> parents) {
+        this.parents = parents;
+        this.chain = 1 + parents.stream().mapToInt(parent -> parent.chain).sum();
+    }
+
+    /**
+     * Makes this resolution read-only and returns it.
+     */
+    public Resolution seal() {
+        sealed = true;
+        return this;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * An empty resolution to record more code in, which reads through to this one and then to {@code others}. This
+     * one and {@code others} are sealed.
+     */
+    public Resolution extend(Resolution... others) {
+        var parents = new ArrayList<Resolution>(1 + others.length);
+        parents.add(seal());
+        for (var other : others) parents.add(other.seal());
+        var extended = new Resolution(List.copyOf(parents));
+        if (extended.chain <= MAX_CHAIN) return extended;
+
+        var flat = new Resolution();
+        for (var parent : parents.reversed()) parent.copyInto(flat);
+        return flat;
+    }
+
+    /**
+     * Distance of a resolved local, or {@code null} for a global.
+     */
+    Integer local(Expression expression) {
+        var distance = locals.get(expression);
+        if (distance != null) return distance;
+        for (var parent : parents) {
+            distance = parent.local(expression);
+            if (distance != null) return distance;
+        }
+        return null;
+    }
+
+    /**
+     * Distance of a resolved local, or -1 for a global.
+     */
+    int distance(Expression expression) {
+        var distance = local(expression);
+        return distance == null ? -1 : distance;
+    }
+
+    boolean isTailCall(Expression expression) {
+        if (tailCalls.contains(expression)) return true;
+        for (var parent : parents) {
+            if (parent.isTailCall(expression)) return true;
+        }
+        return false;
+    }
+
+    void resolve(Expression expression, int depth) {
+        checkWritable();
+        locals.put(expression, depth);
+    }
+
+    void tailCall(Expression.CallExpression expression) {
+        checkWritable();
+        tailCalls.add(expression);
+    }
+
+    /**
+     * Carries what was recorded for {@code original} over to a rewritten copy of it.
+     */
+    void replace(Expression original, Expression replacement) {
+        var distance = local(original);
+        if (distance != null) resolve(replacement, distance);
+        if (isTailCall(original)) {
+            checkWritable();
+            tailCalls.add(replacement);
+        }
+    }
+
+    /**
+     * Copies the entries of this resolution and its parents into {@code target}, those of the nearest winning.
+     */
+    private void copyInto(Resolution target) {
+        for (var parent : parents.reversed()) parent.copyInto(target);
+        target.locals.putAll(locals);
+        target.tailCalls.addAll(tailCalls);
+    }
+
+    private void checkWritable() {
+        if (sealed) throw new IllegalStateException("Resolution is sealed");
+    }
+}
@@ -6,16 +6,31 @@ import parser.Statement;
 import scanner.Token;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 
 public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Void> {
 
     private final Stack<Map<String, Boolean>> scopes = new Stack<>();
-    private final Runtime runtime;
+    private final Supplier<Resolution> resolution;
     private final Doctor doctor;
 
+    private FunctionType currentFunction = FunctionType.NONE;
+    private ClassType currentClass = ClassType.NONE;
+
+    /**
+     * Resolves into the resolution of {@code runtime}, whichever it is at the time, since spawning a task seals it.
+     */
     public Resolver(Runtime runtime, Doctor doctor) {
-        this.runtime = runtime;
+        this(runtime::resolution, doctor);
+    }
+
+    public Resolver(Resolution resolution, Doctor doctor) {
+        this(() -> resolution, doctor);
+    }
+
+    private Resolver(Supplier<Resolution> resolution, Doctor doctor) {
+        this.resolution = resolution;
         this.doctor = doctor;
     }
 
@@ -34,6 +49,11 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         return null;
     }
 
+    @Override
+    public Void visit(Expression.ArgumentExpression it) {
+        return null;
+    }
+
     @Override
     public Void visit(Expression.BinaryExpression it) {
         resolve(it.left());
@@ -50,9 +70,21 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         return null;
     }
 
+    @Override
+    public Void visit(Expression.CompareExpression it) {
+        resolve(it.original());
+        return null;
+    }
+
     @Override
     public Void visit(Expression.FunctionExpression it) {
-        resolve(it.body());
+        resolveFunction(it.parameters(), it.body(), FunctionType.FUNCTION);
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.GetExpression it) {
+        resolve(it.object());
         return null;
     }
 
@@ -62,6 +94,41 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         return null;
     }
 
+    @Override
+    public Void visit(Expression.IndexExpression it) {
+        resolve(it.object());
+        resolve(it.index());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.IndexSetExpression it) {
+        resolve(it.object());
+        resolve(it.index());
+        resolve(it.value());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.InlinedCallExpression it) {
+        resolve(it.original());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.InvariantExpression it) {
+        resolve(it.expression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.ListExpression it) {
+        for (var element : it.elements()) {
+            resolve(element);
+        }
+        return null;
+    }
+
     @Override
     public Void visit(Expression.LogicalExpression it) {
         resolve(it.left());
@@ -74,6 +141,43 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         return null;
     }
 
+    @Override
+    public Void visit(Expression.MapExpression it) {
+        for (int i = 0; i < it.keys().size(); i++) {
+            resolve(it.keys().get(i));
+            resolve(it.values().get(i));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.SetExpression it) {
+        resolve(it.value());
+        resolve(it.object());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.SuperExpression it) {
+        if (currentClass == ClassType.NONE) {
+            doctor.error(it.keyword(), "Can't use 'super' outside of a class.");
+        } else if (currentClass != ClassType.SUBCLASS) {
+            doctor.error(it.keyword(), "Can't use 'super' in a class with no superclass.");
+        }
+        resolveLocal(it, it.keyword());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression.ThisExpression it) {
+        if (currentClass == ClassType.NONE) {
+            doctor.error(it.keyword(), "Can't use 'this' outside of a class.");
+            return null;
+        }
+        resolveLocal(it, it.keyword());
+        return null;
+    }
+
     @Override
     public Void visit(Expression.UnaryExpression it) {
         resolve(it.right());
@@ -97,6 +201,36 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         return null;
     }
 
+    @Override
+    public Void visit(Statement.ClassStatement it) {
+        var enclosingClass = currentClass;
+        currentClass = ClassType.CLASS;
+        declare(it.name());
+        define(it.name());
+
+        if (it.superclass() != null) {
+            if (it.name().lexeme().equals(it.superclass().name().lexeme())) {
+                doctor.error(it.superclass().name(), "A class can't inherit from itself.");
+            }
+            currentClass = ClassType.SUBCLASS;
+            resolve(it.superclass());
+            beginScope();
+            scopes.peek().put("super", true);
+        }
+
+        beginScope();
+        scopes.peek().put("this", true);
+        for (var method : it.methods()) {
+            var type = method.name().lexeme().equals("init") ? FunctionType.INITIALIZER : FunctionType.METHOD;
+            resolveFunction(method.parameters(), method.body(), type);
+        }
+        endScope();
+
+        if (it.superclass() != null) endScope();
+        currentClass = enclosingClass;
+        return null;
+    }
+
     @Override
     public Void visit(Statement.ExpressionStatement it) {
         resolve(it.expression());
@@ -107,7 +241,13 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
     public Void visit(Statement.FunctionStatement it) {
         declare(it.name());
         define(it.name());
-        resolveFunction(it);
+        resolveFunction(it.parameters(), it.body(), FunctionType.FUNCTION);
+        return null;
+    }
+
+    @Override
+    public Void visit(Statement.HoistedWhileStatement it) {
+        resolve(it.loop());
         return null;
     }
 
@@ -121,17 +261,54 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         return null;
     }
 
+    @Override
+    public Void visit(Statement.ImportStatement it) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Statement.IncrementStatement it) {
+        resolve(it.original());
+        return null;
+    }
+
+    /**
+     * Lazy bodies are resolved by {@link #resolveFunctionBody} when they are first run.
+     */
+    @Override
+    public Void visit(Statement.LazyBodyStatement it) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Statement.MemoizedFunctionStatement it) {
+        resolve(it.function());
+        return null;
+    }
+
     @Override
     public Void visit(Statement.PrintStatement it) {
         resolve(it.expression());
         return null;
     }
 
+    @Override
+    public Void visit(Statement.PrintVariableStatement it) {
+        resolve(it.original());
+        return null;
+    }
+
     @Override
     public Void visit(Statement.ReturnStatement it) {
         if (it.value() != null) {
+            if (currentFunction == FunctionType.INITIALIZER) {
+                doctor.error(it.keyword(), "Can't return a value from an initializer.");
+            }
             resolve(it.value());
         }
+        if (currentFunction != FunctionType.NONE && it.value() instanceof Expression.CallExpression call) {
+            resolution.get().tailCall(call);
+        }
         return null;
     }
 
@@ -165,14 +342,24 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
         expression.accept(this);
     }
 
-    private void resolveFunction(Statement.FunctionStatement function) {
+    /**
+     * Resolves the body of a top-level function on its own, its enclosing scope is the global one.
+     */
+    public void resolveFunctionBody(List<Token> parameters, List<Statement> body) {
+        resolveFunction(parameters, body, FunctionType.FUNCTION);
+    }
+
+    private void resolveFunction(List<Token> parameters, List<Statement> body, FunctionType type) {
+        var enclosingFunction = currentFunction;
+        currentFunction = type;
         beginScope();
-        for (var param : function.parameters()) {
+        for (var param : parameters) {
             declare(param);
             define(param);
         }
-        resolve(function.body());
+        resolve(body);
         endScope();
+        currentFunction = enclosingFunction;
     }
 
     private void beginScope() {
@@ -200,9 +387,17 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
     private void resolveLocal(Expression expression, Token name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
             if (scopes.get(i).containsKey(name.lexeme())) {
-                runtime.resolve(expression, scopes.size() - 1 - i);
+                resolution.get().resolve(expression, scopes.size() - 1 - i);
                 return;
             }
         }
     }
+
+    private enum FunctionType {
+        NONE, FUNCTION, INITIALIZER, METHOD
+    }
+
+    private enum ClassType {
+        NONE, CLASS, SUBCLASS
+    }
 }
@@ -1,5 +1,6 @@
 package runtime;
 
+import doctor.Diagnostic;
 import doctor.Doctor;
 import doctor.RuntimeError;
 import parser.Expression;
@@ -7,42 +8,134 @@ import parser.Statement;
 import scanner.Token;
 import scanner.TokenType;
 
+import java.io.PrintStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Void> {
 
-    final Environment globals = new Environment();
+    /**
+     * How nodes are dispatched to their visit method: {@code switch} over their tag, or {@code visitor} through a
+     * virtual {@code accept}, the default. Kept selectable by {@code -Dlox.dispatch} to compare both on real workloads.
+     */
+    private static final boolean SWITCH_DISPATCH = "switch".equals(System.getProperty("lox.dispatch"));
+    private static final Set<String> NATIVES = Set.copyOf(natives().bindings().keySet());
+
+    Environment globals = natives();
     private Environment environment = globals;
-    private final Map<Expression, Integer> locals  = new HashMap<>();
+    private Resolution resolution;
+    private Object[] invariants;
+    private Object[] inlined;
+    private final Set<CompiledBody.Compiled> included = Collections.newSetFromMap(new IdentityHashMap<>());
+    // the body run last, so calling the same function again skips the lookup in included
+    private CompiledBody.Compiled lastIncluded;
+    private final Map<Modules.Module, Map<String, Object>> imported = new IdentityHashMap<>();
     private final Doctor doctor;
+    private final Governor governor;
+    private final Limits limits;
+    private final Cancellation cancellation;
+    private final PrintStream out;
 
     public Runtime(Doctor doctor) {
-        this.doctor = doctor;
+        this(doctor, Limits.none());
     }
 
-    {
-        globals.define("clock", new Callable() {
+    public Runtime(Doctor doctor, Limits limits) {
+        this(doctor, limits, Cancellation.create());
+    }
 
-            @Override
-            public Object call(Runtime runtime, List<Object> args) {
-                return (double) System.currentTimeMillis() / 1000.0;
-            }
+    public Runtime(Doctor doctor, Limits limits, Cancellation cancellation) {
+        this(doctor, limits, cancellation, System.out);
+    }
 
-            @Override
-            public String toString() {
-                return "<native fn>";
-            }
-        });
+    /**
+     * @param out where {@code print} writes to
+     */
+    public Runtime(Doctor doctor, Limits limits, Cancellation cancellation, PrintStream out) {
+        this(doctor, limits, cancellation, out, new Resolution());
+    }
+
+    /**
+     * @param resolution what the resolver recorded for the code this runtime runs, shared as it is if sealed
+     */
+    Runtime(Doctor doctor, Limits limits, Cancellation cancellation, PrintStream out, Resolution resolution) {
+        this(doctor, limits, cancellation, out, resolution, new Governor.Budget());
+    }
+
+    /**
+     * @param budget usage shared with the runtime this one runs code of, see {@link #task()}
+     */
+    private Runtime(Doctor doctor, Limits limits, Cancellation cancellation, PrintStream out, Resolution resolution,
+                    Governor.Budget budget) {
+        this.doctor = doctor;
+        this.governor = new Governor(limits, cancellation, budget);
+        this.limits = limits;
+        this.cancellation = cancellation;
+        this.out = out;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Fresh globals with nothing but the native functions defined.
+     */
+    static Environment natives() {
+        var globals = new Environment();
+        globals.define("clock", new Callable.NativeCallable(0, (_, _) -> (double) System.currentTimeMillis() / 1000.0));
+        globals.define("len", new Callable.NativeCallable(1, (_, args) -> switch (args.getFirst()) {
+            case ListValue list -> (double) list.size();
+            case MapValue map -> (double) map.size();
+            case String string -> (double) string.length();
+            case null, default -> throw new Callable.NativeError("Argument must be a list, a map or a string.");
+        }));
+        globals.define("push", new Callable.NativeCallable(2, (_, args) -> {
+            list(args.getFirst()).add(args.get(1));
+            return null;
+        }));
+        globals.define("pop", new Callable.NativeCallable(1, (_, args) -> {
+            var list = list(args.getFirst());
+            if (list.size() == 0) throw new Callable.NativeError("Cannot pop from an empty list.");
+            return list.removeLast();
+        }));
+        globals.define("keys", new Callable.NativeCallable(1, (_, args) -> map(args.getFirst()).keys()));
+        globals.define("has", new Callable.NativeCallable(2, (_, args) -> map(args.getFirst()).has(args.get(1))));
+        globals.define("remove", new Callable.NativeCallable(2, (_, args) -> map(args.getFirst()).remove(args.get(1))));
+        globals.define("spawn", new Callable.NativeCallable(1, (runtime, args) -> {
+            if (!(args.getFirst() instanceof Callable function) || function.length() != 0)
+                throw new Callable.NativeError("Argument must be a function without parameters.");
+            return runtime.spawn(function);
+        }));
+        globals.define("join", new Callable.NativeCallable(1, (runtime, args) -> task(args.getFirst()).join(runtime.cancellation)));
+        globals.define("channel", new Callable.NativeCallable(1, (_, args) -> {
+            if (!(args.getFirst() instanceof Double capacity) || capacity < 1 || capacity != Math.floor(capacity))
+                throw new Callable.NativeError("Channel capacity must be a positive integer.");
+            return new ChannelValue(capacity.intValue());
+        }));
+        globals.define("send", new Callable.NativeCallable(2, (runtime, args) -> {
+            channel(args.getFirst()).send(args.get(1), runtime.cancellation);
+            return null;
+        }));
+        globals.define("receive", new Callable.NativeCallable(1, (runtime, args) -> channel(args.getFirst()).receive(runtime.cancellation)));
+        globals.define("close", new Callable.NativeCallable(1, (_, args) -> {
+            channel(args.getFirst()).close();
+            return null;
+        }));
+        globals.define("parallelMap", new Callable.NativeCallable(2, (runtime, args) -> Parallel.map(runtime, args.getFirst(), args.get(1))));
+        globals.define("parallelFilter", new Callable.NativeCallable(2, (runtime, args) -> Parallel.filter(runtime, args.getFirst(), args.get(1))));
+        globals.define("parallelReduce", new Callable.NativeCallable(3, (runtime, args) -> Parallel.reduce(runtime, args.getFirst(), args.get(1), args.get(2))));
+        return globals;
     }
 
     public void run(Expression expression) {
         try {
             var value = evaluate(expression);
-            System.out.println(stringify(value));
+            out.println(stringify(value));
         } catch (RuntimeError error) {
             doctor.runtimeError(error);
         }
@@ -51,7 +144,7 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
     public void run(Iterable<Statement> statements) {
         try {
             for (var it : statements)
-                it.accept(this);
+                execute(it);
         } catch (RuntimeError error) {
             doctor.runtimeError(error);
         }
@@ -66,7 +159,7 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
     @Override
     public Object visit(Expression.AssignExpression it) {
         var value = evaluate(it.value());
-        var distance = locals.get(it);
+        var distance = resolution.local(it);
         if (distance != null) {
             environment.assignAt(distance, it.name(), value);
         } else {
@@ -75,6 +168,11 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
         return value;
     }
 
+    @Override
+    public Object visit(Expression.ArgumentExpression it) {
+        return inlined[it.index()];
+    }
+
     @Override
     public Object visit(Expression.BinaryExpression it) {
         var left = evaluate(it.left());
@@ -91,6 +189,7 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
                 if (left instanceof Double d && right instanceof Double e) {
                     yield d + e;
                 } else if (left instanceof String a && right instanceof String b) {
+                    governor.concat(it.operator(), a.length() + b.length());
                     yield a + b;
                 } else {
                     throw new RuntimeError(it.operator(), "Operands must be two numbers or two strings.");
@@ -109,19 +208,36 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
     @Override
     public Object visit(Expression.CallExpression it) {
         var callee = evaluate(it.callee());
-        var arguments = new ArrayList<>(it.arguments().size());
-
-        for (var argument : it.arguments()) {
-            arguments.add(evaluate(argument));
+        var arguments = arguments(it);
+        var callable = callable(it, callee, arguments);
+        governor.enter(it.paren());
+        try {
+            return callable.call(this, arguments);
+        } catch (StackOverflowError error) {
+            throw new RuntimeError(it.paren(), "Stack overflow.");
+        } catch (Callable.NativeError error) {
+            throw new RuntimeError(it.paren(), error.getMessage());
+        } finally {
+            governor.exit();
         }
+    }
 
-        if (!(callee instanceof Callable c))
-            throw new RuntimeError(it.paren(), "Can only call functions and classes.");
-
-        if (c.length() != arguments.size())
-            throw new RuntimeError(it.paren(), "Expected %s arguments but got %s.".formatted(c.length(), arguments.size()));
-
-        return c.call(this, arguments);
+    @Override
+    public Object visit(Expression.CompareExpression it) {
+        var left = operand(it.original().left(), it.left());
+        var right = operand(it.original().right(), it.right());
+        if (!(left instanceof Double a && right instanceof Double b)) {
+            return visit(it.original());
+        }
+        return switch (it.original().operator().type()) {
+            case GREATER -> a > b;
+            case GREATER_EQUAL -> a >= b;
+            case LESS -> a < b;
+            case LESS_EQUAL -> a <= b;
+            case EQUAL_EQUAL -> a.equals(b);
+            case BANG_EQUAL -> !a.equals(b);
+            default -> visit(it.original());
+        };
     }
 
     @Override
@@ -129,11 +245,84 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
         return new Callable.DefaultCallable(it.name(), it.parameters(), it.body(), environment);
     }
 
+    @Override
+    public Object visit(Expression.GetExpression it) {
+        var object = evaluate(it.object());
+        if (object instanceof Instance instance) {
+            return instance.get(it.name(), it.cache());
+        }
+        throw new RuntimeError(it.name(), "Only instances have properties.");
+    }
+
     @Override
     public Object visit(Expression.GroupingExpression it) {
         return evaluate(it.expression());
     }
 
+    @Override
+    public Object visit(Expression.IndexExpression it) {
+        var object = evaluate(it.object());
+        var index = evaluate(it.index());
+        return switch (object) {
+            case ListValue list -> list.get(index(it.bracket(), list, index));
+            case MapValue map -> map.get(index);
+            case null, default -> throw new RuntimeError(it.bracket(), "Only lists and maps can be indexed.");
+        };
+    }
+
+    @Override
+    public Object visit(Expression.IndexSetExpression it) {
+        var object = evaluate(it.object());
+        var index = evaluate(it.index());
+        var value = evaluate(it.value());
+        switch (object) {
+            case ListValue list -> list.set(index(it.bracket(), list, index), value);
+            case MapValue map -> map.put(index, value);
+            case null, default -> throw new RuntimeError(it.bracket(), "Only lists and maps can be indexed.");
+        }
+        return value;
+    }
+
+    @Override
+    public Object visit(Expression.InlinedCallExpression it) {
+        if (!(globals.getAt(0, it.function().lexeme()) instanceof Callable.DefaultCallable function)
+                || !function.isDeclaredBy(it.function())) {
+            return visit(it.original());
+        }
+        var arguments = new Object[it.arguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = evaluate(it.arguments().get(i));
+        }
+        governor.statement();
+        var enclosing = inlined;
+        inlined = arguments;
+        try {
+            return evaluate(it.body());
+        } finally {
+            inlined = enclosing;
+        }
+    }
+
+    @Override
+    public Object visit(Expression.InvariantExpression it) {
+        // a nil result is simply evaluated again, the expression is pure
+        var value = invariants[it.slot()];
+        if (value == null) {
+            value = evaluate(it.expression());
+            invariants[it.slot()] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public Object visit(Expression.ListExpression it) {
+        var elements = new ArrayList<>(it.elements().size());
+        for (var element : it.elements()) {
+            elements.add(evaluate(element));
+        }
+        return new ListValue(elements);
+    }
+
     @Override
     public Object visit(Expression.LogicalExpression it) {
         Object left = evaluate(it.left());
@@ -150,6 +339,48 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
         return it.value();
     }
 
+    @Override
+    public Object visit(Expression.MapExpression it) {
+        var map = new MapValue();
+        for (int i = 0; i < it.keys().size(); i++) {
+            var key = evaluate(it.keys().get(i));
+            map.put(key, evaluate(it.values().get(i)));
+        }
+        return map;
+    }
+
+    @Override
+    public Object visit(Expression.SetExpression it) {
+        var object = evaluate(it.object());
+        if (!(object instanceof Instance instance)) {
+            throw new RuntimeError(it.name(), "Only instances have fields.");
+        }
+        var value = evaluate(it.value());
+        instance.set(it.name(), value, it.cache());
+        return value;
+    }
+
+    @Override
+    public Object visit(Expression.SuperExpression it) {
+        int distance = resolution.local(it);
+        var superclass = (Callable.ClassCallable) environment.getAt(distance, "super");
+        var object = (Instance) environment.getAt(distance - 1, "this");
+        var method = superclass.findMethod(it.method().lexeme());
+        if (method == null) {
+            throw new RuntimeError(it.method(), "Undefined property '%s'.".formatted(it.method().lexeme()));
+        }
+        return method.bind(object);
+    }
+
+    @Override
+    public Object visit(Expression.ThisExpression it) {
+        var distance = resolution.local(it);
+        if (distance != null) {
+            return environment.getAt(distance, it.keyword());
+        }
+        return globals.get(it.keyword());
+    }
+
     @Override
     public Object visit(Expression.UnaryExpression it) {
         var right = evaluate(it.right());
@@ -162,7 +393,7 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
 
     @Override
     public Object visit(Expression.VariableExpression it) {
-        var distance = locals.get(it);
+        var distance = resolution.local(it);
         if (distance != null) {
             return environment.getAt(distance, it.name());
         } else {
@@ -172,7 +403,41 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
 
     @Override
     public Void visit(Statement.BlockStatement it) {
-        executeBlock(it.statements(), environment.fork());
+        executeBlock(it.statements(), fork(environment));
+        return null;
+    }
+
+    @Override
+    public Void visit(Statement.ClassStatement it) {
+        var superclass = (Callable.ClassCallable) null;
+        if (it.superclass() != null) {
+            if (!(evaluate(it.superclass()) instanceof Callable.ClassCallable klass)) {
+                throw new RuntimeError(it.superclass().name(), "Superclass must be a class.");
+            }
+            superclass = klass;
+        }
+        environment.define(it.name(), null);
+
+        var enclosing = environment;
+        if (superclass != null) {
+            environment = fork(environment);
+            environment.define("super", superclass);
+        }
+
+        var methods = new HashMap<String, Callable.DefaultCallable>();
+        for (var method : it.methods()) {
+            var isInitializer = method.name().lexeme().equals("init");
+            methods.put(method.name().lexeme(), new Callable.DefaultCallable(method.name(), method.parameters(), method.body(), environment, isInitializer));
+        }
+        environment = enclosing;
+
+        // threads that run the declaration for the first time at once may each set a root, which only costs caching
+        var shape = it.cache().get() instanceof Shape root ? root : null;
+        if (shape == null) {
+            shape = new Shape();
+            it.cache().set(shape);
+        }
+        environment.assign(it.name(), new Callable.ClassCallable(it.name(), superclass, methods, shape));
         return null;
     }
 
@@ -189,27 +454,160 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
         return null;
     }
 
+    @Override
+    public Void visit(Statement.HoistedWhileStatement it) {
+        var enclosing = invariants;
+        invariants = new Object[it.invariants()];
+        try {
+            return visit(it.loop());
+        } finally {
+            invariants = enclosing;
+        }
+    }
+
     @Override
     public Void visit(Statement.IfStatement it) {
         if (isTruthy(evaluate(it.condition()))) {
-            it.thenBranch().accept(this);
+            execute(it.thenBranch());
         } else if (it.elseBranch() != null) {
-            it.elseBranch().accept(this);
+            execute(it.elseBranch());
         }
         return null;
     }
 
+    @Override
+    public Void visit(Statement.ImportStatement it) {
+        var name = (String) it.path().literal();
+        var module = Modules.load(it.keyword(), name);
+        if (!imported.containsKey(module)) {
+            imported.put(module, null);
+            include(module.resolution());
+            imported.put(module, exports(it.keyword(), name, module));
+        }
+        var exports = imported.get(module);
+        if (exports == null) {
+            throw new RuntimeError(it.keyword(), "Circular import of module '%s'.".formatted(name));
+        }
+        exports.forEach(globals::define);
+        return null;
+    }
+
+    /**
+     * Runs a module in globals of its own and returns what it defined there.
+     */
+    private Map<String, Object> exports(Token keyword, String name, Modules.Module module) {
+        var previous = globals;
+        var enclosing = environment;
+        try {
+            globals = natives();
+            environment = globals;
+            for (var statement : module.statements())
+                execute(statement);
+            var exports = new HashMap<String, Object>();
+            globals.bindings().forEach((binding, value) -> {
+                if (!NATIVES.contains(binding) || !(value instanceof Callable.NativeCallable)) exports.put(binding, value);
+            });
+            return exports;
+        } catch (RuntimeError error) {
+            imported.remove(module);
+            throw new RuntimeError(keyword, Modules.error(name, error.line(), error.getMessage()));
+        } finally {
+            globals = previous;
+            environment = enclosing;
+        }
+    }
+
+    @Override
+    public Void visit(Statement.IncrementStatement it) {
+        var value = variable(it.name(), it.distance());
+        if (!(value instanceof Double number)) {
+            return visit(it.original());
+        }
+        if (it.distance() < 0) {
+            globals.assign(it.name(), number + it.step());
+        } else {
+            environment.assignAt(it.distance(), it.name(), number + it.step());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Statement.LazyBodyStatement it) {
+        var body = (CompiledBody) it.body().compiled();
+        if (body == null) body = (CompiledBody) it.body().compile((statements, errors) -> compile(it, statements, errors));
+        if (body instanceof CompiledBody.Failed(var line, var message)) throw new RuntimeError(line, message);
+        var compiled = (CompiledBody.Compiled) body;
+        if (compiled != lastIncluded) {
+            if (included.add(compiled)) include(compiled.resolution());
+            lastIncluded = compiled;
+        }
+        for (var statement : compiled.statements()) {
+            execute(statement);
+        }
+        return null;
+    }
+
+    /**
+     * Resolves and optimizes a lazily parsed function body the first time any runtime runs the function. Errors in
+     * the body are only found here, they fail every call instead of the script.
+     */
+    private static CompiledBody compile(Statement.LazyBodyStatement it, List<Statement> statements,
+                                        List<Diagnostic> errors) {
+        var doctor = Doctor.collecting();
+        var resolution = new Resolution();
+        if (statements != null) {
+            new Resolver(resolution, doctor).resolveFunctionBody(it.parameters(), statements);
+            errors = doctor.reports();
+        }
+        if (!errors.isEmpty()) {
+            var error = errors.getFirst();
+            return new CompiledBody.Failed(error.line(),
+                    "Error in function '%s'%s: %s".formatted(it.name().lexeme(), error.where(), error.message()));
+        }
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(), System.out, resolution);
+        return new CompiledBody.Compiled(new Optimizer(runtime).optimize(statements), resolution.seal());
+    }
+
+    /**
+     * What {@link #compile} makes of a lazily parsed body, kept on its {@link parser.LazyBody}.
+     */
+    private sealed interface CompiledBody extends Serializable {
+
+        record Compiled(List<Statement> statements, Resolution resolution) implements CompiledBody {
+        }
+
+        record Failed(int line, String message) implements CompiledBody {
+        }
+    }
+
+    @Override
+    public Void visit(Statement.MemoizedFunctionStatement it) {
+        var function = it.function();
+        var callable = new Callable.DefaultCallable(function.name(), function.parameters(), function.body(), environment, false,
+                new Callable.Memo(it.capacity()));
+        environment.define(function.name().lexeme(), callable);
+        return null;
+    }
+
     @Override
     public Void visit(Statement.PrintStatement it) {
         var content = evaluate(it.expression());
-        System.out.println(stringify(content));
+        out.println(stringify(content));
+        return null;
+    }
+
+    @Override
+    public Void visit(Statement.PrintVariableStatement it) {
+        out.println(stringify(variable(it.name(), it.distance())));
         return null;
     }
 
     @Override
     public Void visit(Statement.ReturnStatement it) {
         var value = (Object) null;
-        if (it.value() != null) {
+        if (it.value() instanceof Expression.CallExpression call && resolution.isTailCall(call)) {
+            value = invokeTail(call);
+        } else if (it.value() != null) {
             value = evaluate(it.value());
         }
         throw new Callable.Return(value);
@@ -228,7 +626,8 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
     @Override
     public Void visit(Statement.WhileStatement it) {
         while (isTruthy(evaluate(it.condition()))) {
-            it.body().accept(this);
+            execute(it.body());
+            governor.safepoint(it.keyword());
         }
         return null;
     }
@@ -238,21 +637,135 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
         try {
             this.environment = environment;
             for (var s : statements)
-                s.accept(this);
+                execute(s);
         } finally {
             this.environment = previous;
         }
     }
 
-    void resolve(Expression expression, int depth) {
-        locals.put(expression, depth);
+    /**
+     * Starts {@code function} on a virtual thread in a runtime of its own, see {@link #task()}.
+     */
+    TaskValue spawn(Callable function) {
+        governor.task();
+        var task = task();
+        return TaskValue.start(() -> function.call(task, List.of()));
+    }
+
+    /**
+     * A runtime to run code of this one on another thread. It gets a copy of the globals, so globals it defines or
+     * assigns are not seen by anyone else. It shares the resolution, which is sealed here, and the budget of the
+     * limits, so what it uses counts against this runtime's limits. Everything reachable from values, captured locals
+     * included, is shared by reference.
+     */
+    Runtime task() {
+        var task = new Runtime(doctor, limits, cancellation, out, resolution.seal(), governor.budget());
+        task.globals = globals.copy();
+        task.environment = task.globals;
+        task.included.addAll(included);
+        return task;
+    }
+
+    Environment fork(Environment parent) {
+        governor.environment();
+        return parent.fork();
+    }
+
+    /**
+     * Starts over from the globals of a {@link Snapshot} together with what the resolver recorded for their code.
+     */
+    void restore(Environment globals, Resolution resolution) {
+        this.globals = globals;
+        this.environment = globals;
+        include(resolution);
+    }
+
+    /**
+     * Makes what the resolver recorded for code resolved elsewhere, e.g. a module, available to this runtime.
+     */
+    public void include(Resolution resolution) {
+        this.resolution = this.resolution.extend(resolution);
+    }
+
+    /**
+     * The resolution this runtime reads and the resolver writes to, extended first if it is sealed.
+     */
+    Resolution resolution() {
+        if (resolution.isSealed()) resolution = resolution.extend();
+        return resolution;
+    }
+
+    /**
+     * Distance of a resolved local, or -1 for a global.
+     */
+    int distance(Expression expression) {
+        return resolution.distance(expression);
+    }
+
+    /**
+     * Carries what the resolver recorded for {@code original} over to a rewritten copy of it.
+     */
+    void replace(Expression original, Expression replacement) {
+        resolution().replace(original, replacement);
+    }
+
+    /**
+     * Calls in tail position are not invoked here: a {@link Callable.TailCall} is handed back to the
+     * trampoline in {@link Callable.DefaultCallable#call} which runs it without growing the Java stack.
+     */
+    private Object invokeTail(Expression.CallExpression it) {
+        var callee = evaluate(it.callee());
+        var arguments = arguments(it);
+        var callable = callable(it, callee, arguments);
+        if (callable instanceof Callable.DefaultCallable function) {
+            governor.safepoint(it.paren());
+            return new Callable.TailCall(function, arguments);
+        }
+        try {
+            return callable.call(this, arguments);
+        } catch (Callable.NativeError error) {
+            throw new RuntimeError(it.paren(), error.getMessage());
+        }
+    }
+
+    private List<Object> arguments(Expression.CallExpression it) {
+        var arguments = new ArrayList<>(it.arguments().size());
+        for (var argument : it.arguments()) {
+            arguments.add(evaluate(argument));
+        }
+        return arguments;
+    }
+
+    private Callable callable(Expression.CallExpression it, Object callee, List<Object> arguments) {
+        if (!(callee instanceof Callable c))
+            throw new RuntimeError(it.paren(), "Can only call functions and classes.");
+
+        if (c.length() != arguments.size())
+            throw new RuntimeError(it.paren(), "Expected %s arguments but got %s.".formatted(c.length(), arguments.size()));
+
+        return c;
+    }
+
+    private void execute(Statement statement) {
+        governor.statement();
+        if (SWITCH_DISPATCH) Statement.dispatch(statement, this);
+        else statement.accept(this);
     }
 
     private Object evaluate(Expression expression) {
-        return expression.accept(this);
+        return SWITCH_DISPATCH ? Expression.dispatch(expression, this) : expression.accept(this);
+    }
+
+    private Object variable(Token name, int distance) {
+        return distance < 0 ? globals.get(name) : environment.getAt(distance, name);
     }
 
-    private String stringify(Object value) {
+    private Object operand(Expression operand, int distance) {
+        if (operand instanceof Expression.LiteralExpression literal) return literal.value();
+        return variable(((Expression.VariableExpression) operand).name(), distance);
+    }
+
+    static String stringify(Object value) {
         if (value == null) return "nil";
         if (value instanceof Double) {
             var text = value.toString();
@@ -263,12 +776,40 @@ public class Runtime implements Expression.Visitor<Object>, Statement.Visitor<Vo
         return value.toString();
     }
 
+    private static int index(Token bracket, ListValue list, Object index) {
+        if (!(index instanceof Double number) || number != Math.floor(number))
+            throw new RuntimeError(bracket, "List index must be an integer.");
+        if (number < 0 || number >= list.size())
+            throw new RuntimeError(bracket, "List index %s is out of bounds.".formatted(stringify(number)));
+        return number.intValue();
+    }
+
+    private static ListValue list(Object value) {
+        if (value instanceof ListValue list) return list;
+        throw new Callable.NativeError("Argument must be a list.");
+    }
+
+    private static TaskValue task(Object value) {
+        if (value instanceof TaskValue task) return task;
+        throw new Callable.NativeError("Argument must be a task.");
+    }
+
+    private static ChannelValue channel(Object value) {
+        if (value instanceof ChannelValue channel) return channel;
+        throw new Callable.NativeError("Argument must be a channel.");
+    }
+
+    private static MapValue map(Object value) {
+        if (value instanceof MapValue map) return map;
+        throw new Callable.NativeError("Argument must be a map.");
+    }
+
     private double number(Token operator, Object operand) {
         if (operand instanceof Double it) return it;
         throw new RuntimeError(operator, "Operand must be a number.");
     }
 
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         if (object == null) return false;
         return switch (object) {
             case Boolean it -> it;
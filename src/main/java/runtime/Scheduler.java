@@ -0,0 +1,49 @@
+package runtime;
+
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many scripts at once, each on a virtual thread of its own. The scripts share the carrier threads of the
+ * virtual thread scheduler, sized by {@code jdk.virtualThreadScheduler.parallelism}. A script that has executed a
+ * quantum of statements yields at its next safepoint, so a long loop gives the carriers up to the other scripts
+ * instead of holding one until it ends.
+ */
+public final class Scheduler implements AutoCloseable {
+
+    /**
+     * Quantum used when the limits of a script do not set one.
+     */
+    public static final long DEFAULT_QUANTUM = 10_000;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long quantum;
+
+    public Scheduler() {
+        this(DEFAULT_QUANTUM);
+    }
+
+    public Scheduler(long quantum) {
+        this.quantum = quantum;
+    }
+
+    public Future<CompiledScript.Result> submit(CompiledScript script, PrintStream out) {
+        return submit(script, out, Limits.none(), Cancellation.create());
+    }
+
+    public Future<CompiledScript.Result> submit(CompiledScript script, PrintStream out, Limits limits,
+                                                Cancellation cancellation) {
+        var sliced = limits.quantum() > 0 ? limits : limits.withQuantum(quantum);
+        return executor.submit(() -> script.run(out, sliced, cancellation));
+    }
+
+    /**
+     * Waits for the submitted scripts to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,60 @@
+package runtime;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hidden class of an {@link Instance}: maps field names to slots of its field array. Instances that got the same
+ * fields in the same order share a shape, so a property access site only needs to compare shapes to know where a
+ * field lives. Each class declaration has its own root shape, shared by the classes it makes every time it runs, so
+ * a site stays monomorphic across runs of a script or calls of a function that declares a class.
+ */
+final class Shape implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // immutable, from Map.of or Map.copyOf
+    @SuppressWarnings("serial")
+    private final Map<String, Integer> slots;
+    private transient Map<String, Shape> transitions = new ConcurrentHashMap<>();
+
+    Shape() {
+        this.slots = Map.of();
+    }
+
+    private Shape(Map<String, Integer> slots) {
+        this.slots = slots;
+    }
+
+    int slot(String name) {
+        var slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * Transitions are not stored, a restored shape builds them again as fields are added.
+     */
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        transitions = new ConcurrentHashMap<>();
+    }
+
+    Shape with(String name) {
+        return transitions.computeIfAbsent(name, it -> {
+            var slots = new HashMap<>(this.slots);
+            slots.put(it, this.slots.size());
+            return new Shape(Map.copyOf(slots));
+        });
+    }
+}
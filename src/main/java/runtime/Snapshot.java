@@ -0,0 +1,60 @@
+package runtime;
+
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Globals of a runtime written to a file, e.g. after running a prelude that defines a shared library. The object
+ * graph is kept as it is: closures with their environments, classes, instances and the syntax trees of function
+ * bodies, along with the resolver distances of those trees. Restoring it into a fresh runtime replaces its globals,
+ * so the next script starts where the prelude ended without scanning, parsing or running it again.
+ * <p>
+ * Inline caches are not part of a snapshot and fill up again as the restored code runs.
+ */
+public final class Snapshot {
+
+    private static final String MAGIC = "lox-snapshot";
+    private static final int VERSION = 5;
+
+    /**
+     * Classes a snapshot is made of, anything else in the file is rejected before it is instantiated. Natives are
+     * serializable lambdas, which are restored through the {@code $deserializeLambda$} of the class that made them.
+     */
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(String.join(";",
+            "runtime.*", "parser.*", "scanner.*", "java.util.*",
+            "java.lang.Object", "java.lang.String", "java.lang.Enum", "java.lang.Number", "java.lang.Double",
+            "java.lang.Integer", "java.lang.Boolean", "java.lang.invoke.SerializedLambda", "!*"));
+
+    private Snapshot() {
+    }
+
+    public static void write(Runtime runtime, Path path) throws IOException {
+        try (var output = new ObjectOutputStream(new GZIPOutputStream(Files.newOutputStream(path)))) {
+            output.writeUTF(MAGIC);
+            output.writeInt(VERSION);
+            output.writeObject(new Image(runtime.globals, runtime.resolution()));
+        }
+    }
+
+    public static void read(Runtime runtime, Path path) throws IOException {
+        try (var input = new ObjectInputStream(new GZIPInputStream(Files.newInputStream(path)))) {
+            input.setObjectInputFilter(FILTER);
+            if (!MAGIC.equals(input.readUTF()) || input.readInt() != VERSION)
+                throw new IOException("%s is not a snapshot of this version".formatted(path));
+            var image = (Image) input.readObject();
+            runtime.restore(image.globals(), image.resolution());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("%s is not a snapshot of this version".formatted(path), e);
+        }
+    }
+
+    private record Image(Environment globals, Resolution resolution) implements Serializable {
+    }
+}
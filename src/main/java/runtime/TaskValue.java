@@ -0,0 +1,66 @@
+package runtime;
+
+import doctor.RuntimeError;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * A function running on a virtual thread, started by {@code spawn}. {@code join} waits for it and returns what the
+ * function returned; a runtime error that stopped the task is reported by the {@code join} instead. A waiting
+ * {@code join} wakes up every {@value #POLL_MILLIS} ms to poll the {@link Cancellation} of the waiting runtime.
+ */
+final class TaskValue {
+
+    private static final long POLL_MILLIS = 10;
+
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    private TaskValue() {
+    }
+
+    static TaskValue start(Supplier<Object> body) {
+        var task = new TaskValue();
+        Thread.ofVirtual().name("lox-task").start(() -> {
+            try {
+                task.result.complete(body.get());
+            } catch (Throwable error) {
+                task.result.completeExceptionally(error);
+            }
+        });
+        return task;
+    }
+
+    Object join(Cancellation cancellation) {
+        try {
+            while (true) {
+                var reason = cancellation.reason();
+                if (reason != null) throw new Callable.NativeError(reason);
+                try {
+                    return result.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException _) {
+                    // still running
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Callable.NativeError("Interrupted.");
+        } catch (ExecutionException error) {
+            var message = switch (error.getCause()) {
+                case RuntimeError it -> it.getMessage();
+                case Callable.NativeError it -> it.getMessage();
+                case StackOverflowError _ -> "Stack overflow.";
+                case Throwable it -> it.toString();
+            };
+            throw new Callable.NativeError("Task failed: " + message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<task>";
+    }
+}
@@ -0,0 +1,84 @@
+package scanner;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Interns identifier lexemes straight from the source: a lookup hashes and compares the characters in place and
+ * only allocates a string the first time an identifier is seen. Filled by the scanner, read-only afterwards.
+ */
+final class Identifiers implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private String[] table = new String[64];
+    private int size;
+
+    String intern(String source, int start, int length) {
+        var hash = hash(source, start, length);
+        var mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            var entry = table[i];
+            if (entry == null) break;
+            if (matches(entry, source, start, length)) return entry;
+        }
+        return add(source.substring(start, start + length), hash);
+    }
+
+    String find(String source, int start, int length) {
+        var mask = table.length - 1;
+        for (int i = hash(source, start, length) & mask; ; i = (i + 1) & mask) {
+            var entry = table[i];
+            if (entry == null) return null;
+            if (matches(entry, source, start, length)) return entry;
+        }
+    }
+
+    void addAll(Identifiers other) {
+        for (var entry : other.table) {
+            if (entry != null) intern(entry, 0, entry.length());
+        }
+    }
+
+    private String add(String identifier, int hash) {
+        if (2 * (size + 1) > table.length) rehash();
+        var mask = table.length - 1;
+        var i = hash & mask;
+        while (table[i] != null) i = (i + 1) & mask;
+        table[i] = identifier;
+        size++;
+        return identifier;
+    }
+
+    private void rehash() {
+        var old = table;
+        table = new String[old.length * 2];
+        var mask = table.length - 1;
+        for (var entry : old) {
+            if (entry == null) continue;
+            var i = spread(entry.hashCode()) & mask;
+            while (table[i] != null) i = (i + 1) & mask;
+            table[i] = entry;
+        }
+    }
+
+    private static boolean matches(String entry, String source, int start, int length) {
+        return entry.length() == length && source.regionMatches(start, entry, 0, length);
+    }
+
+    /**
+     * Same as {@link String#hashCode()} over the range, so rehashing can use the hash cached by the string.
+     */
+    private static int hash(String source, int start, int length) {
+        var hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return spread(hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
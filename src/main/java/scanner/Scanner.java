@@ -1,34 +1,125 @@
 package scanner;
 
+import doctor.CollectingDoctor;
 import doctor.Doctor;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static scanner.TokenType.*;
 
 public class Scanner {
 
+    private static final int PARALLEL_CHUNK = 1 << 20;
+
     private final String source;
     private final Doctor doctor;
-    private final List<Token> tokens = new ArrayList<>();
+    private final TokenBuffer tokens;
+    private final int end;
 
-    private int start = 0;
-    private int current = 0;
-    private int line = 1;
+    private int start;
+    private int current;
+    private int line;
 
     public Scanner(String source, Doctor doctor) {
+        this(source, 1, doctor);
+    }
+
+    /**
+     * Scans {@code source} as if its first line had the number {@code line}.
+     */
+    public Scanner(String source, int line, Doctor doctor) {
+        this(source, 0, source.length(), line, doctor);
+    }
+
+    private Scanner(String source, int start, int end, int line, Doctor doctor) {
         this.source = source;
         this.doctor = doctor;
+        this.tokens = new TokenBuffer(source);
+        this.start = start;
+        this.current = start;
+        this.end = end;
+        this.line = line;
+    }
+
+    public TokenBuffer scanTokens() {
+        scan();
+        tokens.add(EOF, current, 0, line);
+        return tokens;
+    }
+
+    /**
+     * Splits the source at line breaks and scans the chunks on the given pool. A first parallel pass finds, for each
+     * chunk, its number of lines and in which state (code, string or block comment) it ends for every state it may
+     * start in. Chaining those states tells where a string or comment crosses a line break we wanted to split at,
+     * such chunks are merged with the previous one so that every chunk starts in code on a known line. The second
+     * pass scans the chunks and concatenates their tokens, diagnostics are replayed in source order.
+     */
+    public TokenBuffer scanTokens(ForkJoinPool pool) {
+        var splits = new ArrayList<Integer>();
+        splits.add(current);
+        var at = current + PARALLEL_CHUNK;
+        while (at < end) {
+            var newline = source.indexOf('\n', at);
+            if (newline < 0 || newline + 1 >= end) break;
+            splits.add(newline + 1);
+            at = newline + 1 + PARALLEL_CHUNK;
+        }
+        splits.add(end);
+        if (splits.size() <= 2) return scanTokens();
+
+        var summaries = new ArrayList<ForkJoinTask<Summary>>();
+        for (int i = 0; i < splits.size() - 1; i++) {
+            var from = splits.get(i);
+            var to = splits.get(i + 1);
+            summaries.add(pool.submit(() -> summarize(source, from, to)));
+        }
+
+        var scanners = new ArrayList<Scanner>();
+        var chunks = new ArrayList<ForkJoinTask<CollectingDoctor>>();
+        var state = State.CODE;
+        var chunkStart = current;
+        var chunkLine = line;
+        var lines = 0;
+        for (int i = 0; i < summaries.size(); i++) {
+            var summary = summaries.get(i).join();
+            state = summary.exits()[state.ordinal()];
+            lines += summary.lines();
+            var to = splits.get(i + 1);
+            if (state == State.CODE || to == end) {
+                var chunkDoctor = Doctor.collecting();
+                var scanner = new Scanner(source, chunkStart, to, chunkLine, chunkDoctor);
+                scanners.add(scanner);
+                chunks.add(pool.submit(() -> {
+                    scanner.scan();
+                    return chunkDoctor;
+                }));
+                chunkStart = to;
+                chunkLine += lines;
+                lines = 0;
+            }
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            var reports = chunks.get(i).join().reports();
+            var scanner = scanners.get(i);
+            tokens.addAll(scanner.tokens);
+            for (var error : reports) {
+                doctor.report(error.line(), error.where(), error.message());
+            }
+            current = scanner.current;
+            line = scanner.line;
+        }
+        tokens.add(EOF, current, 0, line);
+        return tokens;
     }
 
-    public List<Token> scanTokens() {
+    private void scan() {
         while (!isEOF()) {
             start = current;
             scanToken();
         }
-        tokens.add(new Token(EOF, "", null, line));
-        return tokens;
     }
 
     private void scanToken() {
@@ -38,6 +129,8 @@ public class Scanner {
             case ')' -> addToken(RIGHT_PAREN);
             case '{' -> addToken(LEFT_BRACE);
             case '}' -> addToken(RIGHT_BRACE);
+            case '[' -> addToken(LEFT_BRACKET);
+            case ']' -> addToken(RIGHT_BRACKET);
             case ',' -> addToken(COMMA);
             case '.' -> addToken(DOT);
             case '-' -> addToken(MINUS);
@@ -80,8 +173,9 @@ public class Scanner {
 
     private void addIdentifier() {
         while (isAlphanumeric(peek())) advance();
-        var token = source.substring(start, current);
-        addToken(TokenTypes.identifier(token));
+        var type = TokenTypes.identifier(source, start, current - start);
+        if (type == IDENTIFIER) tokens.identifier(start, current - start);
+        addToken(type);
     }
 
     private void addNumber() {
@@ -91,7 +185,7 @@ public class Scanner {
             while (isDigit(peek()));
         }
 
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        addToken(NUMBER);
     }
 
     private void addString() {
@@ -104,8 +198,7 @@ public class Scanner {
             doctor.error(line, "Unterminated string.");
         } else {
             advance();
-            var value = source.substring(start + 1, current - 1);
-            addToken(STRING, value);
+            addToken(STRING);
         }
     }
 
@@ -114,12 +207,7 @@ public class Scanner {
     }
 
     private void addToken(TokenType type) {
-        addToken(type, null);
-    }
-
-    private void addToken(TokenType type, Object literal) {
-        var text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        tokens.add(type, start, current - start, line);
     }
 
     private boolean match(char expected) {
@@ -135,12 +223,12 @@ public class Scanner {
     }
 
     private char peekNext() {
-        if (current + 1 >= source.length()) return '\0';
+        if (current + 1 >= end) return '\0';
         return source.charAt(current + 1);
     }
 
     private boolean isEOF() {
-        return current >= source.length();
+        return current >= end;
     }
 
     private boolean isDigit(char c) {
@@ -154,4 +242,53 @@ public class Scanner {
     private boolean isAlphanumeric(char c) {
         return isDigit(c) || isAlpha(c);
     }
+
+    /**
+     * Follows only the characters that change the lexical state, the same way {@link #scanToken()} consumes them.
+     */
+    private static Summary summarize(String source, int from, int to) {
+        var exits = new State[State.values().length];
+        for (var entry : State.values()) {
+            var state = entry;
+            for (int i = from; i < to; i++) {
+                var c = source.charAt(i);
+                var next = i + 1 < to ? source.charAt(i + 1) : '\0';
+                switch (state) {
+                    case CODE -> {
+                        if (c == '"') {
+                            state = State.STRING;
+                        } else if (c == '/' && next == '/') {
+                            while (i + 1 < to && source.charAt(i + 1) != '\n') i++;
+                        } else if (c == '/' && next == '*') {
+                            state = State.COMMENT;
+                            i++;
+                        }
+                    }
+                    case STRING -> {
+                        if (c == '"') state = State.CODE;
+                    }
+                    case COMMENT -> {
+                        if (c == '*' && next == '/') {
+                            state = State.CODE;
+                            i++;
+                        }
+                    }
+                }
+            }
+            exits[entry.ordinal()] = state;
+        }
+
+        var lines = 0;
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == '\n') lines++;
+        }
+        return new Summary(lines, exits);
+    }
+
+    private enum State {
+        CODE, STRING, COMMENT
+    }
+
+    private record Summary(int lines, State[] exits) {
+    }
 }
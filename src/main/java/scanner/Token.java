@@ -1,11 +1,14 @@
 package scanner;
 
+import java.io.Serializable;
+
 public record Token(
         TokenType type,
         String lexeme,
         Object literal,
-        int line
-) {
+        int line,
+        int offset
+) implements Serializable {
 
     @Override
     public String toString() {
@@ -0,0 +1,112 @@
+package scanner;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Tokens packed into parallel arrays instead of one {@link Token} per element. Lexemes and literals are not stored:
+ * they are cut from the source, or taken from the fixed spelling of the token type, when a token is materialized.
+ * The parser walks the buffer through {@link #type(int)} and only materializes the tokens it keeps in the AST.
+ * Identifiers are interned while scanning, so every occurrence of a name materializes to the same string.
+ */
+public final class TokenBuffer extends AbstractList<Token> implements RandomAccess, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final String source;
+    private final Identifiers identifiers = new Identifiers();
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    TokenBuffer(String source) {
+        this.source = source;
+        this.types = new byte[16];
+        this.starts = new int[16];
+        this.lengths = new int[16];
+        this.lines = new int[16];
+    }
+
+    void add(TokenType type, int start, int length, int line) {
+        if (size == types.length) grow(size + 1);
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    void identifier(int start, int length) {
+        identifiers.intern(source, start, length);
+    }
+
+    void addAll(TokenBuffer other) {
+        identifiers.addAll(other.identifiers);
+        grow(size + other.size);
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.lines, 0, lines, size, other.size);
+        size += other.size;
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= types.length) return;
+        capacity = Math.max(capacity, types.length + (types.length >> 1) + 1);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public String lexeme(int index) {
+        var type = type(index);
+        if (type == TokenType.IDENTIFIER) return identifiers.find(source, starts[index], lengths[index]);
+        var spelling = TokenTypes.spelling(type);
+        if (spelling != null) return spelling;
+        return source.substring(starts[index], starts[index] + lengths[index]);
+    }
+
+    public Object literal(int index) {
+        return switch (type(index)) {
+            case NUMBER -> Double.parseDouble(lexeme(index));
+            case STRING -> source.substring(starts[index] + 1, starts[index] + lengths[index] - 1);
+            default -> null;
+        };
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return new Token(type(index), lexeme(index), literal(index), lines[index], starts[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
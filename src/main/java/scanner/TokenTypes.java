@@ -1,5 +1,6 @@
 package scanner;
 
+import java.util.EnumMap;
 import java.util.Map;
 
 import static java.util.Map.entry;
@@ -15,6 +16,7 @@ class TokenTypes {
             entry("for", FOR),
             entry("fun", FUN),
             entry("if", IF),
+            entry("import", IMPORT),
             entry("nil", NIL),
             entry("or", OR),
             entry("print", PRINT),
@@ -26,7 +28,81 @@ class TokenTypes {
             entry("while", WHILE)
     );
 
-    static TokenType identifier(String token) {
-        return keywords.getOrDefault(token, IDENTIFIER);
+    private static final Map<TokenType, String> spellings = new EnumMap<>(Map.ofEntries(
+            entry(LEFT_PAREN, "("),
+            entry(RIGHT_PAREN, ")"),
+            entry(LEFT_BRACE, "{"),
+            entry(RIGHT_BRACE, "}"),
+            entry(LEFT_BRACKET, "["),
+            entry(RIGHT_BRACKET, "]"),
+            entry(COMMA, ","),
+            entry(DOT, "."),
+            entry(MINUS, "-"),
+            entry(PLUS, "+"),
+            entry(SEMICOLON, ";"),
+            entry(SLASH, "/"),
+            entry(STAR, "*"),
+            entry(QUESTION, "?"),
+            entry(COLON, ":"),
+            entry(BANG, "!"),
+            entry(BANG_EQUAL, "!="),
+            entry(EQUAL, "="),
+            entry(EQUAL_EQUAL, "=="),
+            entry(GREATER, ">"),
+            entry(GREATER_EQUAL, ">="),
+            entry(LESS, "<"),
+            entry(LESS_EQUAL, "<="),
+            entry(EOF, "")
+    ));
+
+    static {
+        keywords.forEach((lexeme, type) -> spellings.put(type, lexeme));
+    }
+
+    /**
+     * Recognizes keywords directly over the source, dispatching on the first characters and comparing the rest,
+     * without cutting the lexeme out of it.
+     */
+    static TokenType identifier(String source, int start, int length) {
+        return switch (source.charAt(start)) {
+            case 'a' -> keyword(source, start, length, "and", AND);
+            case 'c' -> keyword(source, start, length, "class", CLASS);
+            case 'e' -> keyword(source, start, length, "else", ELSE);
+            case 'f' -> length < 2 ? IDENTIFIER : switch (source.charAt(start + 1)) {
+                case 'a' -> keyword(source, start, length, "false", FALSE);
+                case 'o' -> keyword(source, start, length, "for", FOR);
+                case 'u' -> keyword(source, start, length, "fun", FUN);
+                default -> IDENTIFIER;
+            };
+            case 'i' -> length < 2 ? IDENTIFIER : switch (source.charAt(start + 1)) {
+                case 'f' -> keyword(source, start, length, "if", IF);
+                case 'm' -> keyword(source, start, length, "import", IMPORT);
+                default -> IDENTIFIER;
+            };
+            case 'n' -> keyword(source, start, length, "nil", NIL);
+            case 'o' -> keyword(source, start, length, "or", OR);
+            case 'p' -> keyword(source, start, length, "print", PRINT);
+            case 'r' -> keyword(source, start, length, "return", RETURN);
+            case 's' -> keyword(source, start, length, "super", SUPER);
+            case 't' -> length < 2 ? IDENTIFIER : switch (source.charAt(start + 1)) {
+                case 'h' -> keyword(source, start, length, "this", THIS);
+                case 'r' -> keyword(source, start, length, "true", TRUE);
+                default -> IDENTIFIER;
+            };
+            case 'v' -> keyword(source, start, length, "var", VAR);
+            case 'w' -> keyword(source, start, length, "while", WHILE);
+            default -> IDENTIFIER;
+        };
+    }
+
+    private static TokenType keyword(String source, int start, int length, String keyword, TokenType type) {
+        return length == keyword.length() && source.startsWith(keyword, start) ? type : IDENTIFIER;
+    }
+
+    /**
+     * The lexeme shared by all tokens of the type, or {@code null} if it depends on the source.
+     */
+    static String spelling(TokenType type) {
+        return spellings.get(type);
     }
 }
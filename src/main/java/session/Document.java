@@ -0,0 +1,256 @@
+package session;
+
+import doctor.CollectingDoctor;
+import doctor.Diagnostic;
+import doctor.Doctor;
+import parser.Parser;
+import parser.Statement;
+import runtime.Resolution;
+import runtime.Resolver;
+import scanner.Scanner;
+import scanner.TokenBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A source kept in a long-lived session, e.g. by an editor. The source is split into chunks, one per top-level
+ * declaration, each holding its parsed statement, the sealed {@link Resolution} of that statement and its
+ * diagnostics. An edit re-scans, re-parses and
+ * re-resolves only the chunks it touches; all the others are reused as they are.
+ * <p>
+ * Top-level declarations resolve in the global scope which the resolver does not track, so a chunk can be resolved
+ * on its own. Tokens of a chunk keep the line numbers of the scan that produced them. Every scan numbers its lines
+ * after those of the previous one, so a line tells which chunk it comes from: diagnostics are shifted to lines of
+ * the current source when published, and {@link #line} does the same for the lines of runtime errors.
+ */
+public class Document {
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private String source;
+    private int nextLine = 1;
+    private Resolution resolution;
+
+    public Document(String source) {
+        this.source = source;
+        this.chunks.addAll(compile(source));
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Replaces {@code length} characters at {@code offset} with {@code text} and returns the diagnostics of the
+     * whole document.
+     */
+    public List<Diagnostic> edit(int offset, int length, String text) {
+        if (offset < 0 || length < 0 || offset + length > source.length())
+            throw new IndexOutOfBoundsException("Edit [%s, %s) is outside of the document".formatted(offset, offset + length));
+
+        source = source.substring(0, offset) + text + source.substring(offset + length);
+        var delta = text.length() - length;
+
+        var starts = starts();
+        var first = 0;
+        while (first < chunks.size() - 1 && starts[first] + chunks.get(first).length() < offset) first++;
+        var last = first;
+        while (last < chunks.size() - 1 && starts[last + 1] <= offset + length) last++;
+
+        // errors recover by skipping tokens, so a broken neighbour may have swallowed part of the edited code
+        while (first > 0 && !chunks.get(first - 1).diagnostics().isEmpty()) first--;
+        while (last < chunks.size() - 1 && !chunks.get(last + 1).diagnostics().isEmpty()) last++;
+
+        while (true) {
+            var from = starts[first];
+            var to = starts[last] + chunks.get(last).length() + delta;
+            var region = source.substring(from, to);
+            if (first > 0 && startsWithElse(region)) {
+                first--;
+                continue;
+            }
+            var line = nextLine;
+            var compiled = compile(region);
+            if (last < chunks.size() - 1 && (!isClosed(region, compiled) || !chunks.get(last + 1).diagnostics().isEmpty())) {
+                nextLine = line;
+                last++;
+                continue;
+            }
+            chunks.subList(first, last + 1).clear();
+            chunks.addAll(first, compiled);
+            resolution = null;
+            return diagnostics();
+        }
+    }
+
+    public List<Diagnostic> diagnostics() {
+        var output = new ArrayList<Diagnostic>();
+        var line = 1;
+        for (var chunk : chunks) {
+            for (var diagnostic : chunk.diagnostics()) {
+                output.add(diagnostic.withLine(line + diagnostic.line() - chunk.base()));
+            }
+            line += chunk.lines();
+        }
+        return output;
+    }
+
+    public List<Statement> statements() {
+        var output = new ArrayList<Statement>();
+        for (var chunk : chunks) {
+            if (chunk.statement() != null) output.add(chunk.statement());
+        }
+        return output;
+    }
+
+    /**
+     * What the resolver recorded for {@link #statements()}, composed of the resolutions of the chunks. A runtime
+     * {@link runtime.Runtime#include includes} it to run the statements. It is composed again only after an edit.
+     */
+    public Resolution resolution() {
+        if (resolution == null) {
+            var resolutions = chunks.stream().map(Chunk::resolution).toArray(Resolution[]::new);
+            resolution = new Resolution().extend(resolutions).seal();
+        }
+        return resolution;
+    }
+
+    /**
+     * The line in the current source of a line carried by the tokens of {@link #statements()}, e.g. the line of a
+     * runtime error.
+     */
+    public int line(int line) {
+        var absolute = 1;
+        for (var chunk : chunks) {
+            if (line >= chunk.base() && line <= chunk.base() + chunk.lines()) return absolute + line - chunk.base();
+            absolute += chunk.lines();
+        }
+        return line;
+    }
+
+    private int[] starts() {
+        var starts = new int[chunks.size()];
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] = starts[i - 1] + chunks.get(i - 1).length();
+        }
+        return starts;
+    }
+
+    /**
+     * A re-compiled region can replace the old chunks only if nothing in it would have continued into the code that
+     * follows: the last declaration parsed cleanly, no comment runs up to the end of the region and the last token
+     * does not touch the next one.
+     */
+    private static boolean isClosed(String region, List<Chunk> compiled) {
+        if (!compiled.getLast().diagnostics().isEmpty()) return false;
+        var tail = region.substring(compiled.getLast().end());
+        if (tail.isEmpty()) {
+            return region.isEmpty() || !isJoinable(region.charAt(region.length() - 1));
+        }
+        return tail.lastIndexOf("//") <= tail.lastIndexOf('\n');
+    }
+
+    /**
+     * Whether the first token of {@code region} is {@code else}, which continues an {@code if} in the chunk before.
+     */
+    private static boolean startsWithElse(String region) {
+        var i = 0;
+        while (i < region.length()) {
+            if (" \r\t\n".indexOf(region.charAt(i)) >= 0) {
+                i++;
+            } else if (region.startsWith("//", i)) {
+                var end = region.indexOf('\n', i);
+                i = end < 0 ? region.length() : end;
+            } else if (region.startsWith("/*", i)) {
+                var end = region.indexOf("*/", i + 2);
+                if (end < 0) return false;
+                i = end + 2;
+            } else {
+                break;
+            }
+        }
+        var end = i + "else".length();
+        return region.startsWith("else", i)
+                && (end == region.length() || !Character.isLetterOrDigit(region.charAt(end)) && region.charAt(end) != '_');
+    }
+
+    private static boolean isJoinable(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '/' || c == '=' || c == '!' || c == '<' || c == '>';
+    }
+
+    /**
+     * Compiles {@code text} into chunks whose lines are numbered from {@link #nextLine}, then moves it past them.
+     */
+    private List<Chunk> compile(String text) {
+        var doctor = Doctor.collecting();
+        var tokens = new Scanner(text, nextLine, doctor).scanTokens();
+        var scanErrors = doctor.drain();
+
+        var parser = new Parser(tokens, doctor);
+
+        var positions = new ArrayList<Integer>();
+        var statements = new ArrayList<Statement>();
+        var resolutions = new ArrayList<Resolution>();
+        var diagnostics = new ArrayList<List<Diagnostic>>();
+        while (parser.hasNext()) {
+            positions.add(parser.position());
+            var statement = parser.parseDeclaration();
+            var resolution = new Resolution();
+            if (statement != null) new Resolver(resolution, doctor).resolve(List.of(statement));
+            statements.add(statement);
+            resolutions.add(resolution.seal());
+            diagnostics.add(new ArrayList<>(doctor.drain()));
+        }
+        if (positions.isEmpty()) {
+            positions.add(0);
+            statements.add(null);
+            resolutions.add(new Resolution().seal());
+            diagnostics.add(new ArrayList<>());
+        }
+
+        var output = new ArrayList<Chunk>(positions.size());
+        var base = nextLine;
+        for (int i = 0; i < positions.size(); i++) {
+            var start = i == 0 ? 0 : tokens.start(positions.get(i));
+            var next = i + 1 < positions.size() ? tokens.start(positions.get(i + 1)) : -1;
+            var length = (next < 0 ? text.length() : next) - start;
+            var lines = lines(text, start, start + length);
+            var end = lastTokenEnd(tokens, positions.get(i), next < 0 ? tokens.size() - 1 : positions.get(i + 1));
+            var chunk = new Chunk(length, lines, base, Math.max(end, start), statements.get(i), resolutions.get(i),
+                    diagnostics.get(i));
+            if (!scanErrors.isEmpty()) {
+                // scanner errors only carry a line, which can be shared by several chunks
+                var scanner = Doctor.collecting();
+                new Scanner(text.substring(start, start + length), base, scanner).scanTokens();
+                chunk.diagnostics().addAll(0, scanner.reports());
+            }
+            output.add(chunk);
+            base += lines;
+        }
+        nextLine = base + 1;
+        return output;
+    }
+
+    private static int lines(String text, int from, int to) {
+        var lines = 0;
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '\n') lines++;
+        }
+        return lines;
+    }
+
+    private static int lastTokenEnd(TokenBuffer tokens, int from, int to) {
+        if (to <= from) return 0;
+        return tokens.start(to - 1) + tokens.length(to - 1);
+    }
+
+    /**
+     * @param length number of characters in the chunk, including the whitespace and comments after its declaration
+     * @param lines  number of line breaks in the chunk
+     * @param base   line number of the first line of the chunk in the scan it was compiled by
+     * @param end    offset just past the last token of the chunk in the text it was compiled from
+     */
+    private record Chunk(int length, int lines, int base, int end, Statement statement, Resolution resolution,
+                         List<Diagnostic> diagnostics) {
+    }
+}
@@ -0,0 +1,79 @@
+package session;
+
+import doctor.CollectingDoctor;
+import parser.Parser;
+import runtime.Optimizer;
+import runtime.Resolver;
+import runtime.Runtime;
+import scanner.Scanner;
+
+import java.io.PrintStream;
+
+/**
+ * An interactive session that keeps one runtime and resolver alive, so globals defined by one input are visible to
+ * the next ones. Input arrives a line at a time: an input that ends in the middle of a declaration is continued on
+ * the next line, an input that is a single expression is evaluated and printed.
+ * <p>
+ * Nothing is memoized, any later input can rebind a global that a function found pure calls.
+ */
+public final class Repl {
+
+    private final Runtime runtime;
+    private final CollectingDoctor doctor;
+    private final Resolver resolver;
+    private final PrintStream err;
+    private final StringBuilder input = new StringBuilder();
+
+    /**
+     * @param doctor the doctor of {@code runtime}, drained after every input
+     * @param err    where the diagnostics of an input are written
+     */
+    public Repl(Runtime runtime, CollectingDoctor doctor, PrintStream err) {
+        this.runtime = runtime;
+        this.doctor = doctor;
+        this.resolver = new Resolver(runtime, doctor);
+        this.err = err;
+    }
+
+    /**
+     * What to prompt for the next line with: a new input, or the continuation of an unfinished one.
+     */
+    public String prompt() {
+        return input.isEmpty() ? "> " : "... ";
+    }
+
+    public void line(String line) {
+        input.append(line).append('\n');
+
+        var tokens = new Scanner(input.toString(), doctor).scanTokens();
+        var statements = new Parser(tokens, doctor).parseStatements();
+        var errors = doctor.drain();
+
+        if (!errors.isEmpty()) {
+            var parser = new Parser(tokens, doctor);
+            var expression = parser.parseExpression();
+            if (doctor.drain().isEmpty() && !parser.hasNext()) {
+                input.setLength(0);
+                resolver.resolve(expression);
+                if (report()) runtime.run(expression);
+                report();
+                return;
+            }
+            if (errors.stream().allMatch(it -> it.where().equals(" at end"))) return;
+        }
+
+        input.setLength(0);
+        errors.forEach(err::println);
+        if (!errors.isEmpty()) return;
+
+        resolver.resolve(statements);
+        if (report()) runtime.run(new Optimizer(runtime).optimize(statements));
+        report();
+    }
+
+    private boolean report() {
+        var errors = doctor.drain();
+        errors.forEach(err::println);
+        return errors.isEmpty();
+    }
+}
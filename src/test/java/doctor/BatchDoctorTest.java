@@ -0,0 +1,56 @@
+package doctor;
+
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+import scanner.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchDoctorTest {
+
+    private static String parse(BatchDoctor doctor, String source) {
+        new Parser(new Scanner(source, doctor).scanTokens(), doctor).parseStatements();
+        return doctor.output();
+    }
+
+    @Test
+    void cascadeAfterRecoveringIsSuppressed() {
+        assertEquals("""
+                [line 1] Error at'{': Expect parameter name.
+                [line 2] Error at';': Expect expression.
+                ... 1 more errors suppressed.
+                """, parse(new BatchDoctor(100, false), "fun f( { print 1; }\nvar a = ;\n"));
+    }
+
+    @Test
+    void scannerErrorsOnOneLineAreAllKept() {
+        assertEquals("""
+                [line 1] Error: Unexpected character: @
+                [line 1] Error: Unexpected character: #
+                """, parse(new BatchDoctor(100, false), "@ #"));
+    }
+
+    @Test
+    void diagnosticsOverTheLimitAreCounted() {
+        var doctor = new BatchDoctor(2, false);
+        for (int line = 1; line <= 5; line++) doctor.error(line, "Unexpected character: @");
+
+        assertEquals("""
+                [line 1] Error: Unexpected character: @
+                [line 2] Error: Unexpected character: @
+                ... 3 more errors suppressed.
+                """, doctor.output());
+    }
+
+    @Test
+    void jsonEscapesStringsAndLeavesOutAnEmptyWhere() {
+        var doctor = new BatchDoctor(100, true);
+        doctor.report(3, " at'\"'", "Bad \\ \"quote\"\n\u0001");
+        doctor.runtimeError(new RuntimeError(4, "Oops."));
+
+        assertEquals("""
+                {"diagnostics":[{"kind":"syntax","line":3,"where":"at'\\"'","message":"Bad \\\\ \\"quote\\"\\n\\u0001"},\
+                {"kind":"runtime","line":4,"message":"Oops."}],"suppressed":0}
+                """, doctor.output());
+    }
+}
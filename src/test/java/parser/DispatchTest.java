@@ -0,0 +1,59 @@
+package parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DispatchTest {
+
+    /**
+     * A visitor whose every visit method returns the node it was called with, together with the parameter type of
+     * the method, so a node that reaches the wrong method shows up.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V echo(Class<V> visitor) {
+        return (V) Proxy.newProxyInstance(visitor.getClassLoader(), new Class<?>[]{visitor},
+                (_, method, args) -> method.getParameterTypes()[0].getSimpleName() + " " + args[0].getClass().getSimpleName());
+    }
+
+    private static Object instance(Class<?> type) throws ReflectiveOperationException {
+        var components = type.getRecordComponents();
+        var types = new Class<?>[components.length];
+        var values = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            values[i] = types[i].isPrimitive() ? Array.get(Array.newInstance(types[i], 1), 0) : null;
+        }
+        return type.getDeclaredConstructor(types).newInstance(values);
+    }
+
+    private static <N> void assertSameMethod(Class<N> node, Object visitor, BiFunction<N, Object, Object> dispatch,
+                                             BiFunction<N, Object, Object> accept) throws ReflectiveOperationException {
+        for (var type : node.getPermittedSubclasses()) {
+            var instance = node.cast(instance(type));
+            var expected = type.getSimpleName() + " " + type.getSimpleName();
+            assertEquals(expected, dispatch.apply(instance, visitor));
+            assertEquals(expected, accept.apply(instance, visitor));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void everyExpressionReachesTheSameVisitMethod() throws ReflectiveOperationException {
+        assertSameMethod(Expression.class, echo(Expression.Visitor.class),
+                (node, visitor) -> Expression.dispatch(node, (Expression.Visitor<Object>) visitor),
+                (node, visitor) -> node.accept((Expression.Visitor<Object>) visitor));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void everyStatementReachesTheSameVisitMethod() throws ReflectiveOperationException {
+        assertSameMethod(Statement.class, echo(Statement.Visitor.class),
+                (node, visitor) -> Statement.dispatch(node, (Statement.Visitor<Object>) visitor),
+                (node, visitor) -> node.accept((Statement.Visitor<Object>) visitor));
+    }
+}
@@ -0,0 +1,52 @@
+package parser;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+import scanner.Scanner;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelParseTest {
+
+    private static String largeSource() {
+        var source = new StringBuilder();
+        for (int i = 0; source.length() < 2 << 20; i++) {
+            source.append("class C").append(i).append(" { m(a) { if (a) { return [a, {\"k\": a}]; } else return nil; } }\n");
+            source.append("fun f").append(i).append("(a, b) { var c = a; while (c < b) c = c + 1; return c; }\n");
+            source.append("print f").append(i).append("(1, 2) + -3 * (4 - 5);\n");
+        }
+        return source.toString();
+    }
+
+    private static List<String> printed(List<Statement> statements) {
+        var printer = new ASTPrinter();
+        return statements.stream().map(printer::print).toList();
+    }
+
+    @Test
+    void chunkedParseGivesTheSameStatements() {
+        var source = largeSource();
+        var doctor = Doctor.collecting();
+        var tokens = new Scanner(source, doctor).scanTokens();
+        var sequential = new Parser(tokens, doctor).parseStatements();
+        var parallel = new Parser(tokens, doctor).parseStatements(ForkJoinPool.commonPool());
+
+        assertEquals(List.of(), doctor.reports());
+        assertEquals(printed(sequential), printed(parallel));
+    }
+
+    @Test
+    void syntaxErrorIsReportedAsBySequentialParsing() {
+        var source = largeSource() + "var broken = ;\n" + largeSource();
+        var sequential = Doctor.collecting();
+        new Parser(new Scanner(source, sequential).scanTokens(), sequential).parseStatements();
+        var parallel = Doctor.collecting();
+        new Parser(new Scanner(source, parallel).scanTokens(), parallel).parseStatements(ForkJoinPool.commonPool());
+
+        assertEquals(sequential.reports(), parallel.reports());
+        assertEquals(1, parallel.reports().size());
+    }
+}
@@ -0,0 +1,53 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CancellationTest {
+
+    @Test
+    void endlessLoopStopsAtTheTimeout() {
+        var output = Scripts.execute("while (true) {}", Limits.none(), Cancellation.timeout(Duration.ofMillis(50)), 0);
+
+        assertEquals("Script timed out.", output.error());
+    }
+
+    @Test
+    void endlessRecursionStopsAtTheTimeout() {
+        var output = Scripts.execute("fun spin() { return spin(); } spin();", Limits.none(),
+                Cancellation.timeout(Duration.ofMillis(50)), 0);
+
+        assertEquals("Script timed out.", output.error());
+    }
+
+    @Test
+    void cancelledScriptStopsInItsNextLoop() {
+        var cancellation = Cancellation.create();
+        cancellation.cancel();
+        var output = Scripts.execute("print 1; while (true) {}", Limits.none(), cancellation, 0);
+
+        assertEquals("1\n", output.printed());
+        assertEquals("Script cancelled.", output.error());
+    }
+
+    @Test
+    void blockedReceiveStopsAtTheTimeout() {
+        var output = Scripts.execute("receive(channel(1));", Limits.none(), Cancellation.timeout(Duration.ofMillis(50)), 0);
+
+        assertEquals("Script timed out.", output.error());
+    }
+
+    @Test
+    void cancellationIsSeenOnlyOnceSet() {
+        var cancellation = Cancellation.create();
+        assertFalse(cancellation.isCancelled());
+
+        cancellation.cancel();
+        assertTrue(cancellation.isCancelled());
+    }
+}
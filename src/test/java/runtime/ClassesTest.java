@@ -0,0 +1,117 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+import parser.Cache;
+import parser.Expression;
+import parser.Statement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassesTest {
+
+    @Test
+    void methodsFieldsAndInheritance() {
+        assertEquals("3\nPoint instance\nPoint\n6\n6\nBA\n", Scripts.run("""
+                class Point {
+                  init(x, y) { this.x = x; this.y = y; }
+                  sum() { return this.x + this.y; }
+                }
+                var p = Point(1, 2);
+                print p.sum();
+                print p;
+                print Point;
+                class P3 < Point {
+                  init(x, y, z) { super.init(x, y); this.z = z; }
+                  sum() { return super.sum() + this.z; }
+                }
+                var bound = P3(1, 2, 3).sum;
+                print bound();
+                print P3(1, 2, 3).sum();
+                class A { method() { return "A"; } }
+                class B < A { method() { return "B" + super.method(); } }
+                print B().method();
+                """));
+    }
+
+    @Test
+    void siteSeeingManyShapesStaysCorrect() {
+        assertEquals("15\n", Scripts.run("""
+                class O { init(n) { if (n > 0) this.a = 0; if (n > 1) this.b = 0; if (n > 2) this.c = 0;
+                                    if (n > 3) this.d = 0; if (n > 4) this.e = 0; this.v = n; } }
+                var total = 0;
+                for (var i = 0; i < 6; i = i + 1) total = total + O(i).v;
+                print total;
+                """));
+    }
+
+    @Test
+    void fieldShadowsMethodOnlyOnInstancesThatHaveIt() {
+        assertEquals("field\nmethod\n", Scripts.run("""
+                class C { m() { return "method"; } }
+                var a = C();
+                var b = C();
+                a.m = "field";
+                print a.m;
+                print b.m();
+                """));
+    }
+
+    @Test
+    void instancesThatGotTheSameFieldsShareAShape() {
+        var root = new Shape();
+        var xy = root.with("x").with("y");
+
+        assertSame(xy, root.with("x").with("y"));
+        assertEquals(1, xy.slot("y"));
+        assertEquals(-1, root.with("y").with("x").slot("z"));
+    }
+
+    @Test
+    void cacheBecomesMegamorphicAfterFourShapes() {
+        var cache = new Cache();
+        var shapes = new Shape[5];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = new Shape();
+            InlineCache.add(cache, new InlineCache.Entry(shapes[i], 0, shapes[i]));
+        }
+
+        for (var shape : shapes) assertNull(InlineCache.find(cache, shape));
+    }
+
+    @Test
+    void siteStaysMonomorphicAcrossRunsOfAScript() {
+        var script = CompiledScript.compile("""
+                class P { init() { this.x = 1; } get() { return this.x; } }
+                print P().get();
+                """);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(script.run(new PrintStream(new ByteArrayOutputStream())).isSuccess());
+        }
+
+        var print = (Statement.PrintStatement) script.statements().getLast();
+        var get = (Expression.GetExpression) ((Expression.CallExpression) print.expression()).callee();
+        assertEquals(1, ((Object[]) get.cache().get()).length);
+    }
+
+    @Test
+    void methodsComeFromTheClassMadeByTheCurrentRun() {
+        assertEquals("1\n2\n", Scripts.run("""
+                fun make(n) { class C { get() { return n; } } return C(); }
+                print make(1).get();
+                print make(2).get();
+                """));
+    }
+
+    @Test
+    void errors() {
+        assertEquals("Only instances have properties.", Scripts.execute("1.x;", Limits.none()).error());
+        assertEquals("Undefined property 'x'.", Scripts.execute("class C {} C().x;", Limits.none()).error());
+        assertEquals("Superclass must be a class.", Scripts.execute("var A = 1; class B < A {}", Limits.none()).error());
+    }
+}
@@ -0,0 +1,86 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionsTest {
+
+    @Test
+    void listOfNumbersKeepsItsElementsWhenAnotherTypeIsAdded() {
+        assertEquals("[1, 2, 3, a]\n9\na\n3\n", Scripts.run("""
+                var l = [1, 2, 3];
+                push(l, "a");
+                print l;
+                l[0] = 9;
+                print l[0];
+                print pop(l);
+                print len(l);
+                """));
+    }
+
+    @Test
+    void listGrowsPastItsInitialCapacity() {
+        var list = new ListValue(List.of());
+        for (int i = 0; i < 100; i++) list.add((double) i);
+        list.set(50, "x");
+        list.add(true);
+
+        assertEquals(101, list.size());
+        assertEquals(49.0, list.get(49));
+        assertEquals("x", list.get(50));
+        assertEquals(99.0, list.get(99));
+        assertEquals(true, list.removeLast());
+    }
+
+    @Test
+    void mapKeepsInsertionOrderAcrossKeyTypes() {
+        assertEquals("{a: 1, b: 2, 1: one}\n1\n{b: 2, 1: one, a: 3}\n[b, 1, a]\ntrue\nnil\n", Scripts.run("""
+                var m = {"a": 1, "b": 2};
+                m[1] = "one";
+                print m;
+                print remove(m, "a");
+                m["a"] = 3;
+                print m;
+                print keys(m);
+                print has(m, 1);
+                print m["missing"];
+                """));
+    }
+
+    @Test
+    void mapFindsEveryKeyAfterGrowingAndRemoving() {
+        var map = new MapValue();
+        var keys = new ArrayList<Object>();
+        for (int i = 0; i < 500; i++) {
+            keys.add("k" + i);
+            keys.add((double) i);
+        }
+        for (var key : keys) map.put(key, key);
+        for (int i = 0; i < keys.size(); i += 3) map.remove(keys.get(i));
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (i % 3 == 0) {
+                assertFalse(map.has(keys.get(i)));
+                assertNull(map.get(keys.get(i)));
+            } else {
+                assertTrue(map.has(keys.get(i)));
+                assertEquals(keys.get(i), map.get(keys.get(i)));
+            }
+        }
+        assertEquals(keys.size() - (keys.size() + 2) / 3, map.size());
+    }
+
+    @Test
+    void indexingErrors() {
+        assertEquals("List index 7 is out of bounds.", Scripts.execute("[1][7];", Limits.none()).error());
+        assertEquals("List index must be an integer.", Scripts.execute("[1][0.5];", Limits.none()).error());
+        assertEquals("Only lists and maps can be indexed.", Scripts.execute("1[0];", Limits.none()).error());
+    }
+}
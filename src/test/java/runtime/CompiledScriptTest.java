@@ -0,0 +1,72 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledScriptTest {
+
+    private static String run(CompiledScript script) {
+        var bytes = new ByteArrayOutputStream();
+        var result = script.run(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        assertTrue(result.isSuccess(), "diagnostics " + result.diagnostics());
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void compileErrorsAreReturnedAndTheScriptCannotRun() {
+        var script = CompiledScript.compile("var x = ;");
+
+        assertEquals("Expect expression.", script.diagnostics().getFirst().message());
+        assertThrows(IllegalStateException.class, () -> script.run(System.out));
+    }
+
+    @Test
+    void everyRunStartsFromFreshGlobals() {
+        var script = CompiledScript.compile("var count = 0; count = count + 1; print count;");
+
+        assertEquals("1\n", run(script));
+        assertEquals("1\n", run(script));
+    }
+
+    @Test
+    void resultHoldsTheGlobalsLeftBehind() {
+        var result = CompiledScript.compile("var answer = 6 * 7;").run(System.out);
+
+        assertTrue(result.isSuccess());
+        assertEquals(42.0, result.globals().get("answer"));
+    }
+
+    @Test
+    void runtimeErrorIsReturnedInTheResult() {
+        var result = CompiledScript.compile("print 1; print -\"a\";").run(new PrintStream(new ByteArrayOutputStream()));
+
+        assertFalse(result.isSuccess());
+        assertEquals("Operand must be a number.", result.diagnostics().getFirst().message());
+    }
+
+    @Test
+    void scriptRunsOnManyThreadsAtOnce() throws Exception {
+        var script = CompiledScript.compile("""
+                class Point { init(x, y) { this.x = x; this.y = y; } sum() { return this.x + this.y; } }
+                fun total(n) { var sum = 0; var i = 0; while (i < n) { sum = sum + Point(i, 1).sum(); i = i + 1; } return sum; }
+                print total(1000);
+                """);
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            var runs = new ArrayList<Future<String>>();
+            for (int i = 0; i < 32; i++) runs.add(executor.submit((Callable<String>) () -> run(script)));
+            for (var run : runs) assertEquals("500500\n", run.get());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InliningTest {
+
+    @Test
+    void inlinedCallReturnsTheValueOfTheBody() {
+        assertEquals("9\n", Scripts.run("fun square(x) { return x * x; } print square(3);"));
+    }
+
+    @Test
+    void argumentsAreEvaluatedOnceAndInOrder() {
+        assertEquals("1\n2\n1\n", Scripts.run("""
+                fun first(a, b) { return a; }
+                fun echo(x) { print x; return x; }
+                print first(echo(1), echo(2));
+                """));
+    }
+
+    @Test
+    void reassignedFunctionIsCalledInsteadOfTheInlinedBody() {
+        assertEquals("4\n8\n", Scripts.run("""
+                fun square(x) { return x * x; }
+                fun cube(x) { return x * x * x; }
+                var i = 0;
+                while (i < 2) { print square(2); square = cube; i = i + 1; }
+                """));
+    }
+
+    @Test
+    void wrongNumberOfArgumentsIsStillAnError() {
+        assertEquals("Expected 1 arguments but got 2.",
+                Scripts.execute("fun square(x) { return x * x; } square(1, 2);", Limits.none()).error());
+    }
+}
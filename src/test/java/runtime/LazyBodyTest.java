@@ -0,0 +1,122 @@
+package runtime;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+import parser.Statement;
+import scanner.Scanner;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LazyBodyTest {
+
+    private static Scripts.Output lazily(String source) {
+        return Scripts.execute(source, Limits.none(), Cancellation.create(), 0, true);
+    }
+
+    @Test
+    void lazyBodyRunsLikeAParsedOne() {
+        var source = """
+                fun add(a) { var b = 2; { var c = a + b; return c; } }
+                fun counter() { var n = 0; fun next() { n = n + 1; return n; } return next; }
+                var next = counter();
+                next();
+                print add(1);
+                print next();
+                """;
+
+        assertEquals(Scripts.run(source), lazily(source).printed());
+        assertEquals("3\n2\n", lazily(source).printed());
+    }
+
+    @Test
+    void lazyBodyRunsInSpawnedTasks() {
+        var output = lazily("""
+                fun square(x) { var y = x * x; return y; }
+                fun work() { return square(3); }
+                print square(2);
+                print join(spawn(work));
+                """);
+
+        assertEquals(List.of(), output.errors());
+        assertEquals("4\n9\n", output.printed());
+    }
+
+    @Test
+    void syntaxErrorInABodyFailsTheCallAtItsLine() {
+        var output = lazily("""
+                fun bad() {
+                  var x = 1;
+                  print x +;
+                }
+                print "before";
+                bad();
+                """);
+
+        assertEquals("before\n", output.printed());
+        assertEquals(3, output.errors().getFirst().line());
+        assertEquals("Error in function 'bad' at';': Expect expression.", output.error());
+    }
+
+    @Test
+    void resolveErrorInABodyFailsTheCall() {
+        var output = lazily("fun bad() {\n  var a = 1;\n  { var a = a; }\n}\nbad();");
+
+        assertEquals(3, output.errors().getFirst().line());
+        assertEquals("Error in function 'bad' at'a': Can't read local variable in its own initializer.", output.error());
+    }
+
+    private static Statement.LazyBodyStatement lazyBody(String source) {
+        var doctor = Doctor.collecting();
+        var statements = new Parser(new Scanner(source, doctor).scanTokens(), doctor, true).parseStatements();
+        return (Statement.LazyBodyStatement) ((Statement.FunctionStatement) statements.getFirst()).body().getFirst();
+    }
+
+    @Test
+    void bodyIsCompiledOnce() {
+        var lazy = lazyBody("fun f() { return 1; }");
+        var compiles = new int[1];
+
+        var first = lazy.body().compile((body, errors) -> {
+            compiles[0]++;
+            assertEquals(List.of(), errors);
+            return new ArrayList<>(body);
+        });
+        var second = lazy.body().compile((body, errors) -> {
+            compiles[0]++;
+            return new ArrayList<>(body);
+        });
+
+        assertEquals(1, compiles[0]);
+        assertSame(first, second);
+    }
+
+    @Test
+    void bodyCompiledByManyThreadsAtOnceIsCompiledOnce() throws Exception {
+        var lazy = lazyBody("fun f() { return 1; }");
+        var compiles = new AtomicInteger();
+        var results = new ArrayList<Future<Serializable>>();
+
+        assertNull(lazy.body().compiled());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> lazy.body().compile((body, errors) -> {
+                    compiles.incrementAndGet();
+                    return new ArrayList<>(body);
+                })));
+            }
+        }
+
+        assertEquals(1, compiles.get());
+        for (var result : results) assertSame(lazy.body().compiled(), result.get());
+    }
+}
@@ -0,0 +1,53 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LimitsTest {
+
+    @Test
+    void deepRecursionStopsAtTheCallDepth() {
+        var output = Scripts.execute("fun down(n) { if (n == 0) return 0; return 1 + down(n - 1); } print down(100);",
+                new Limits(50, 0, 0, 0, 0, 0));
+
+        assertEquals("Stack overflow.", output.error());
+    }
+
+    @Test
+    void recursionWithinTheCallDepthRuns() {
+        var output = Scripts.execute("fun down(n) { if (n == 0) return 0; return 1 + down(n - 1); } print down(40);",
+                new Limits(50, 0, 0, 0, 0, 0));
+
+        assertEquals("40\n", output.printed());
+    }
+
+    @Test
+    void endlessLoopStopsAtTheStatementBudget() {
+        var output = Scripts.execute("while (true) {}", new Limits(0, 1000, 0, 0, 0, 0));
+
+        assertEquals("Statement budget of 1000 exceeded.", output.error());
+    }
+
+    @Test
+    void blocksInALoopStopAtTheEnvironmentBudget() {
+        var output = Scripts.execute("var i = 0; while (i < 1000) { var j = i; i = i + 1; }", new Limits(0, 0, 100, 0, 0, 0));
+
+        assertEquals("Environment budget of 100 exceeded.", output.error());
+    }
+
+    @Test
+    void growingStringStopsAtTheCharacterBudget() {
+        var output = Scripts.execute("var s = \"x\"; while (true) s = s + s;", new Limits(0, 0, 0, 1000, 0, 0));
+
+        assertEquals("String allocation budget of 1000 characters exceeded.", output.error());
+    }
+
+    @Test
+    void tailCallsDoNotCountAgainstTheCallDepth() {
+        var output = Scripts.execute("fun count(n) { if (n == 0) return \"done\"; return count(n - 1); } print count(1000);",
+                new Limits(10, 0, 0, 0, 0, 0));
+
+        assertEquals("done\n", output.printed());
+    }
+}
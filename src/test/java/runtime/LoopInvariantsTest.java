@@ -0,0 +1,81 @@
+package runtime;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+import parser.Statement;
+import scanner.Scanner;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class LoopInvariantsTest {
+
+    private static final String LOOP = """
+            var a = 1; var b = 2;
+            var i = 0;
+            while (i < 3) { print a + b; i = i + 1; }
+            """;
+
+    /**
+     * The last statement of {@code source} after optimizing.
+     */
+    private static Statement optimizedLast(String source) {
+        var doctor = Doctor.collecting();
+        var runtime = new Runtime(doctor);
+        var statements = new Parser(new Scanner(source, doctor).scanTokens(), doctor).parseStatements();
+        new Resolver(runtime, doctor).resolve(statements);
+        assertEquals(List.of(), doctor.reports());
+        return new Optimizer(runtime, 0).optimize(statements).getLast();
+    }
+
+    @Test
+    void invariantIsEvaluatedOncePerLoop() {
+        assertEquals("3\n3\n3\n", Scripts.run(LOOP));
+        assertEquals(1, assertInstanceOf(Statement.HoistedWhileStatement.class, optimizedLast(LOOP)).invariants());
+    }
+
+    @Test
+    void invariantIsEvaluatedAgainWhenTheLoopIsEnteredAgain() {
+        assertEquals("1\n2\n", Scripts.run("""
+                var a = 0;
+                var j = 0;
+                while (j < 2) {
+                    a = a + 1;
+                    var i = 0;
+                    while (i < 1) { print a * 1; i = i + 1; }
+                    j = j + 1;
+                }
+                """));
+    }
+
+    @Test
+    void nothingIsHoistedFromALoopWithACall() {
+        assertEquals("1\n2\n3\n", Scripts.run("""
+                var y = 0;
+                fun g() { y = y + 1; return 0; }
+                var i = 0;
+                while (i < 3) { g(); print y; i = i + 1; }
+                """));
+        assertInstanceOf(Statement.WhileStatement.class, optimizedLast("""
+                var a = 1; var b = 2;
+                fun g() { return 0; }
+                var i = 0;
+                while (i < 3) { g(); print a + b; i = i + 1; }
+                """));
+    }
+
+    @Test
+    void nothingIsHoistedFromALoopWithAnInlinedCall() {
+        assertEquals("2\n3\n4\n", Scripts.run("""
+                fun h() { return 0; }
+                fun g() { y = y + 1; return 0; }
+                var y = 0;
+                h = g;
+                var i = 0;
+                while (i < 3) { h(); print y + 1; i = i + 1; }
+                """));
+    }
+}
@@ -0,0 +1,53 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemoizationTest {
+
+    private static final String FIB = """
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            print fib(30);
+            """;
+
+    private static Scripts.Output memoized(String source, Limits limits) {
+        return Scripts.execute(source, limits, Cancellation.create(), 64);
+    }
+
+    @Test
+    void pureFunctionComputesEachResultOnce() {
+        var limits = new Limits(0, 10_000, 0, 0, 0, 0);
+
+        assertEquals("832040\n", memoized(FIB, limits).printed());
+        assertEquals("Statement budget of 10000 exceeded.", Scripts.execute(FIB, limits).error());
+    }
+
+    @Test
+    void functionThatPrintsIsNotMemoized() {
+        var output = memoized("fun f(x) { print x; return x; } f(1); f(1);", Limits.none());
+
+        assertEquals("1\n1\n", output.printed());
+    }
+
+    @Test
+    void functionThatReadsAGlobalVariableIsNotMemoized() {
+        var output = memoized("var k = 1; fun f(x) { return x + k; } print f(1); k = 2; print f(1);", Limits.none());
+
+        assertEquals("2\n3\n", output.printed());
+    }
+
+    @Test
+    void reassignedFunctionIsNotMemoized() {
+        var output = memoized("""
+                fun f(x) { return x; }
+                fun g(x) { return f(x); }
+                print g(1);
+                fun h(x) { return x + 1; }
+                f = h;
+                print g(1);
+                """, Limits.none());
+
+        assertEquals("1\n2\n", output.printed());
+    }
+}
@@ -0,0 +1,79 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModulesTest {
+
+    private static String module(String source) throws IOException {
+        var path = Files.createTempFile("module", ".lox");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, source);
+        return path.toString().replace("\\", "/");
+    }
+
+    private static String importing(String module, String source) {
+        return "import \"%s\";\n%s".formatted(module, source);
+    }
+
+    @Test
+    void everyImporterRunsTheModuleInItsOwnGlobals() throws IOException {
+        var module = module("""
+                print "loading";
+                var count = 0;
+                fun bump() { count = count + 1; return count; }
+                """);
+        var script = importing(module, "print bump(); print bump();");
+
+        assertEquals("loading\n1\n2\n", Scripts.run(script));
+        assertEquals("loading\n1\n2\n", Scripts.run(script));
+    }
+
+    @Test
+    void moduleIsRunOncePerImporter() throws IOException {
+        var module = module("print \"loading\"; fun sq(x) { return x * x; }");
+        var other = module(importing(module, "fun twice(x) { return sq(x) * 2; }"));
+
+        assertEquals("loading\n18\n", Scripts.run(importing(module, importing(other, "print twice(3);"))));
+    }
+
+    @Test
+    void moduleRunsUnderTheLimitsOfTheImporter() throws IOException {
+        var module = module("var i = 0;\nwhile (true) i = i + 1;");
+        var output = Scripts.execute(importing(module, ""), new Limits(0, 100, 0, 0, 0, 0));
+
+        assertEquals("Error in module '%s' at line 2: Statement budget of 100 exceeded.".formatted(module), output.error());
+    }
+
+    @Test
+    void syntaxErrorOfAModuleIsReportedWithItsLine() throws IOException {
+        var module = module("var x = 1;\nvar y = ;");
+
+        assertEquals("Error in module '%s' at line 2: Expect expression.".formatted(module),
+                Scripts.execute(importing(module, ""), Limits.none()).error());
+    }
+
+    @Test
+    void circularImportIsAnError() throws IOException {
+        var first = Files.createTempFile("module", ".lox");
+        first.toFile().deleteOnExit();
+        var second = module("import \"%s\";".formatted(first.toString().replace("\\", "/")));
+        Files.writeString(first, "import \"%s\";".formatted(second));
+        var output = Scripts.execute(importing(first.toString(), ""), Limits.none());
+
+        assertTrue(output.error().endsWith("Circular import of module '%s'.".formatted(first)));
+    }
+
+    @Test
+    void importInsideABlockIsASyntaxError() throws IOException {
+        var module = module("var x = 1;");
+
+        assertEquals("Can't import outside the top level.",
+                Scripts.execute("fun f() {\n" + importing(module, "}"), Limits.none()).errors().getFirst().message());
+    }
+}
@@ -0,0 +1,52 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelTest {
+
+    private static final String BUSY = """
+            fun busy(x) { var i = 0; while (i < 1000) i = i + 1; return x; }
+            print len(parallelMap(100, busy));
+            """;
+
+    @Test
+    void mapKeepsTheOrderOfTheElements() {
+        assertEquals("[1, 4, 9, 16]\n", Scripts.run("print parallelMap([1, 2, 3, 4], fun (x) { return x * x; });"));
+    }
+
+    @Test
+    void filterKeepsTheOrderOfTheElements() {
+        assertEquals("[6, 7, 8, 9]\n", Scripts.run("print parallelFilter(10, fun (x) { return x > 5; });"));
+    }
+
+    @Test
+    void reduceFoldsTheChunksInOrder() {
+        var expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            expected.append((char) ('a' + i / 100)).append((char) ('a' + i / 10 % 10)).append((char) ('a' + i % 10));
+        }
+
+        assertEquals(expected + "\n", Scripts.run("""
+                var letters = ["a", "b", "c", "d", "e", "f", "g", "h", "i", "j"];
+                var words = [];
+                for (var i = 0; i < 10; i = i + 1)
+                  for (var j = 0; j < 10; j = j + 1)
+                    for (var k = 0; k < 10; k = k + 1) push(words, letters[i] + letters[j] + letters[k]);
+                print parallelReduce(words, fun (a, b) { return a + b; }, "");
+                """));
+    }
+
+    @Test
+    void chunksCountAgainstTheStatementBudgetOfTheCaller() {
+        assertEquals("100\n", Scripts.run(BUSY));
+        assertEquals("Statement budget of 10000 exceeded.", Scripts.execute(BUSY, new Limits(0, 10_000, 0, 0, 0, 0)).error());
+    }
+
+    @Test
+    void errorOfAChunkStopsTheCall() {
+        assertEquals("Operand must be a number.",
+                Scripts.execute("parallelMap([1, \"a\", 3], fun (x) { return -x; });", Limits.none()).error());
+    }
+}
@@ -0,0 +1,105 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+import parser.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResolutionTest {
+
+    private static Expression node() {
+        return new Expression.LiteralExpression(null);
+    }
+
+    private static Expression.CallExpression call() {
+        return new Expression.CallExpression(node(), null, List.of());
+    }
+
+    @Test
+    void sealedResolutionIsReadOnly() {
+        var resolution = new Resolution();
+        var node = node();
+        resolution.resolve(node, 1);
+        resolution.seal();
+
+        assertTrue(resolution.isSealed());
+        assertEquals(Integer.valueOf(1), resolution.local(node));
+        assertThrows(IllegalStateException.class, () -> resolution.resolve(node(), 0));
+        assertThrows(IllegalStateException.class, () -> resolution.tailCall(call()));
+    }
+
+    @Test
+    void extensionReadsThroughToTheResolutionsItExtends() {
+        var first = new Resolution();
+        var second = new Resolution();
+        var a = node();
+        var b = node();
+        var tail = call();
+        first.resolve(a, 1);
+        second.resolve(b, 2);
+        second.tailCall(tail);
+
+        var extended = first.extend(second);
+        var c = node();
+        extended.resolve(c, 3);
+
+        assertTrue(first.isSealed());
+        assertTrue(second.isSealed());
+        assertFalse(extended.isSealed());
+        assertEquals(Integer.valueOf(1), extended.local(a));
+        assertEquals(Integer.valueOf(2), extended.local(b));
+        assertEquals(Integer.valueOf(3), extended.local(c));
+        assertTrue(extended.isTailCall(tail));
+        assertNull(first.local(c));
+        assertEquals(-1, extended.distance(node()));
+    }
+
+    @Test
+    void nearestEntryWins() {
+        var node = node();
+        var base = new Resolution();
+        base.resolve(node, 1);
+        var extended = base.extend();
+        extended.resolve(node, 2);
+
+        assertEquals(Integer.valueOf(2), extended.local(node));
+        assertEquals(Integer.valueOf(1), base.local(node));
+    }
+
+    @Test
+    void longChainIsFlattenedWithoutLosingEntries() {
+        var nodes = new ArrayList<Expression>();
+        var resolution = new Resolution();
+        for (int i = 0; i < 50; i++) {
+            var node = node();
+            nodes.add(node);
+            resolution.resolve(node, i);
+            resolution = resolution.extend();
+        }
+
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(Integer.valueOf(i), resolution.local(nodes.get(i)));
+        }
+    }
+
+    @Test
+    void replacementTakesOverTheEntriesOfTheOriginal() {
+        var original = call();
+        var replacement = node();
+        var resolution = new Resolution();
+        resolution.resolve(original, 4);
+        resolution.tailCall(original);
+        var extended = resolution.extend();
+        extended.replace(original, replacement);
+
+        assertEquals(Integer.valueOf(4), extended.local(replacement));
+        assertTrue(extended.isTailCall(replacement));
+    }
+}
@@ -0,0 +1,79 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs with a single carrier thread, set by the surefire configuration, so a script that does not yield keeps every
+ * other script from running.
+ */
+class SchedulerTest {
+
+    /**
+     * Submits a script that never ends and returns once it has started running on the carrier.
+     */
+    private static Future<CompiledScript.Result> endless(Scheduler scheduler, Limits limits,
+                                                         Cancellation cancellation) throws InterruptedException {
+        assertEquals("1", System.getProperty("jdk.virtualThreadScheduler.parallelism"),
+                "run with -Djdk.virtualThreadScheduler.parallelism=1");
+        var started = new CountDownLatch(1);
+        var out = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                started.countDown();
+            }
+        }, true);
+        var running = scheduler.submit(CompiledScript.compile("print 0; while (true) {}"), out, limits, cancellation);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return running;
+    }
+
+    @Test
+    void shortScriptFinishesWhileALongOneIsRunning() throws Exception {
+        var quick = CompiledScript.compile("print 1 + 2;");
+        var cancellation = Cancellation.create();
+        var output = new ByteArrayOutputStream();
+        try (var scheduler = new Scheduler(100)) {
+            var running = endless(scheduler, Limits.none(), cancellation);
+            try {
+                var result = scheduler.submit(quick, new PrintStream(output, true)).get(10, TimeUnit.SECONDS);
+
+                assertTrue(result.isSuccess());
+                assertEquals("3\n", output.toString());
+                assertFalse(running.isDone());
+            } finally {
+                cancellation.cancel();
+            }
+            assertEquals("Script cancelled.", running.get(10, TimeUnit.SECONDS).diagnostics().getFirst().message());
+        }
+    }
+
+    @Test
+    void limitsOfAScriptKeepTheirOwnQuantum() throws Exception {
+        var quick = CompiledScript.compile("var i = 0; while (i < 1000) i = i + 1; print i;");
+        var cancellation = Cancellation.create();
+        var output = new ByteArrayOutputStream();
+        // the scheduler's quantum would never let the endless script yield, only its own quantum of 1 does
+        try (var scheduler = new Scheduler(1_000_000_000_000L)) {
+            endless(scheduler, Limits.none().withQuantum(1), cancellation);
+            try {
+                var result = scheduler.submit(quick, new PrintStream(output, true)).get(10, TimeUnit.SECONDS);
+
+                assertTrue(result.isSuccess());
+                assertEquals("1000\n", output.toString());
+            } finally {
+                cancellation.cancel();
+            }
+        }
+    }
+}
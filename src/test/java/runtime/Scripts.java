@@ -0,0 +1,66 @@
+package runtime;
+
+import doctor.Diagnostic;
+import doctor.Doctor;
+import parser.Parser;
+import scanner.Scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs sources through the same pipeline as the {@code run} command and captures what they print.
+ */
+final class Scripts {
+
+    private Scripts() {
+    }
+
+    /**
+     * Lines printed by {@code source}, which must compile and run without errors.
+     */
+    static String run(String source) {
+        var output = execute(source, Limits.none(), Cancellation.create(), 0);
+        assertEquals(List.of(), output.errors());
+        return output.printed();
+    }
+
+    static Output execute(String source, Limits limits) {
+        return execute(source, limits, Cancellation.create(), 0);
+    }
+
+    static Output execute(String source, Limits limits, Cancellation cancellation, int memoize) {
+        return execute(source, limits, cancellation, memoize, false);
+    }
+
+    /**
+     * @param lazy whether bodies of top-level functions are parsed when they first run
+     */
+    static Output execute(String source, Limits limits, Cancellation cancellation, int memoize, boolean lazy) {
+        var doctor = Doctor.collecting();
+        var bytes = new ByteArrayOutputStream();
+        var runtime = new Runtime(doctor, limits, cancellation, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        var statements = new Parser(new Scanner(source, doctor).scanTokens(), doctor, lazy).parseStatements();
+        new Resolver(runtime, doctor).resolve(statements);
+        if (doctor.reports().isEmpty()) {
+            runtime.run(new Optimizer(runtime, memoize).optimize(statements));
+        }
+        return new Output(bytes.toString(StandardCharsets.UTF_8), List.copyOf(doctor.reports()));
+    }
+
+    /**
+     * @param printed what the script printed, one value per line
+     * @param errors  syntax, resolve and runtime errors
+     */
+    record Output(String printed, List<Diagnostic> errors) {
+
+        String error() {
+            assertEquals(1, errors.size(), "errors " + errors);
+            return errors.getFirst().message();
+        }
+    }
+}
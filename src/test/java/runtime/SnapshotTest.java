@@ -0,0 +1,108 @@
+package runtime;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+import scanner.Scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotTest {
+
+    private static final String PRELUDE = """
+            class Point { init(x) { this.x = x; } sum() { return this.x + this.y; } }
+            var origin = Point(0);
+            var squares = [0, 1, 4];
+            var config = {"a": 1};
+            fun adder(n) { fun add(x) { return x + n; } return add; }
+            var addTwo = adder(2);
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            """;
+
+    private static void run(Runtime runtime, Doctor doctor, String source) {
+        var statements = new Parser(new Scanner(source, doctor).scanTokens(), doctor).parseStatements();
+        new Resolver(runtime, doctor).resolve(statements);
+        runtime.run(new Optimizer(runtime, 16).optimize(statements));
+    }
+
+    private static String restoreAndRun(Path snapshot, String source) throws IOException {
+        var doctor = Doctor.collecting();
+        var bytes = new ByteArrayOutputStream();
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(), new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        Snapshot.read(runtime, snapshot);
+        run(runtime, doctor, source);
+        assertEquals(List.of(), doctor.reports());
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Path snapshot(String prelude) throws IOException {
+        var doctor = Doctor.collecting();
+        var runtime = new Runtime(doctor);
+        run(runtime, doctor, prelude);
+        assertEquals(List.of(), doctor.reports());
+        var path = Files.createTempFile("prelude", ".snap");
+        path.toFile().deleteOnExit();
+        Snapshot.write(runtime, path);
+        return path;
+    }
+
+    @Test
+    void restoredGlobalsKeepTheirValues() throws IOException {
+        var snapshot = snapshot(PRELUDE);
+
+        assertEquals("0\n[0, 1, 4]\n1\n5\n55\n", restoreAndRun(snapshot, """
+                print origin.x;
+                print squares;
+                print config["a"];
+                print addTwo(3);
+                print fib(10);
+                """));
+    }
+
+    @Test
+    void restoredClassesGetNewFields() throws IOException {
+        var snapshot = snapshot(PRELUDE);
+
+        assertEquals("5\n7\n", restoreAndRun(snapshot, """
+                var p = Point(2);
+                p.y = 3;
+                print p.sum();
+                origin.y = 7;
+                print origin.sum();
+                """));
+    }
+
+    @Test
+    void everyRestoreStartsFromTheSnapshot() throws IOException {
+        var snapshot = snapshot(PRELUDE);
+
+        assertEquals("[0, 1, 4, 9]\n", restoreAndRun(snapshot, "push(squares, 9); print squares;"));
+        assertEquals("[0, 1, 4]\n", restoreAndRun(snapshot, "print squares;"));
+    }
+
+    @Test
+    void classesOutsideTheInterpreterAreRejected() throws IOException {
+        var path = Files.createTempFile("foreign", ".snap");
+        path.toFile().deleteOnExit();
+        try (var output = new ObjectOutputStream(new GZIPOutputStream(Files.newOutputStream(path)))) {
+            output.writeUTF("lox-snapshot");
+            output.writeInt(5);
+            output.writeObject(new File("foreign"));
+        }
+
+        assertThrows(InvalidClassException.class, () -> Snapshot.read(new Runtime(Doctor.collecting()), path));
+    }
+}
@@ -0,0 +1,53 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuperinstructionsTest {
+
+    @Test
+    void countingLoopsOnLocalsAndGlobals() {
+        assertEquals("10\n-3\n4.5\n", Scripts.run("""
+                var g = 0;
+                while (g < 10) g = g + 1;
+                print g;
+                {
+                  var i = 3;
+                  while (0 < i) { i = i - 2; }
+                  print i - 2;
+                  var h = 0;
+                  for (var j = 0; j <= 2; j = j + 1) h = h + 1.5;
+                  print h;
+                }
+                """));
+    }
+
+    @Test
+    void incrementOfANonNumberFallsBackToTheAssignment() {
+        assertEquals("Operands must be two numbers or two strings.",
+                Scripts.execute("{ var s = \"a\"; s = s + 1; }", Limits.none()).error());
+    }
+
+    @Test
+    void comparisonOfNonNumbersFallsBackToTheBinary() {
+        assertEquals("true\nfalse\ntrue\n", Scripts.run("""
+                var a = nil;
+                var b = nil;
+                print a == b;
+                var c = "x";
+                print c != "x";
+                print c == "x";
+                """));
+        assertEquals("Operand must be a number.", Scripts.execute("var a = nil; print a < 1;", Limits.none()).error());
+    }
+
+    @Test
+    void printOfAVariable() {
+        assertEquals("1\nnil\n[1]\n", Scripts.run("""
+                var a = 1;
+                var b;
+                { var c = [a]; print a; print b; print c; }
+                """));
+    }
+}
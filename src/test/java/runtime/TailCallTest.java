@@ -0,0 +1,51 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TailCallTest {
+
+    @Test
+    void selfRecursionInTailPositionDoesNotGrowTheStack() {
+        assertEquals("done\n", Scripts.run("""
+                fun count(n) { if (n == 0) return "done"; return count(n - 1); }
+                print count(500000);
+                """));
+    }
+
+    @Test
+    void mutualRecursionInTailPositionDoesNotGrowTheStack() {
+        assertEquals("true\nfalse\n", Scripts.run("""
+                fun isEven(n) { if (n == 0) return true; return isOdd(n - 1); }
+                fun isOdd(n) { if (n == 0) return false; return isEven(n - 1); }
+                print isEven(300000);
+                print isEven(300001);
+                """));
+    }
+
+    @Test
+    void callsOutsideTailPositionKeepTheirResult() {
+        assertEquals("55\n", Scripts.run("""
+                fun sum(n) { if (n == 0) return 0; return n + sum(n - 1); }
+                print sum(10);
+                """));
+    }
+
+    @Test
+    void tailCallsThroughBoundMethodsDoNotGrowTheStack() {
+        assertEquals("done\n", Scripts.run("""
+                class Counter { count(n) { if (n == 0) return "done"; return this.count(n - 1); } }
+                print Counter().count(500000);
+                """));
+    }
+
+    @Test
+    void tailCallOfAClassReturnsTheInitializedInstance() {
+        assertEquals("1\n", Scripts.run("""
+                class A { init() { this.x = 1; return; } }
+                fun make() { return A(); }
+                print make().x;
+                """));
+    }
+}
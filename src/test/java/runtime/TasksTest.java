@@ -0,0 +1,87 @@
+package runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TasksTest {
+
+    private static final String WORKERS = """
+            fun work() { var i = 0; while (i < 1000) i = i + 1; return i; }
+            var k = 0;
+            while (k < 20) { join(spawn(work)); k = k + 1; }
+            print "done";
+            """;
+
+    @Test
+    void joinReturnsWhatTheTaskReturned() {
+        assertEquals("42\n", Scripts.run("fun answer() { return 6 * 7; } print join(spawn(answer));"));
+    }
+
+    @Test
+    void globalsAssignedByATaskStayPrivateToIt() {
+        assertEquals("1\n2\n", Scripts.run("""
+                var x = 1;
+                fun bump() { x = x + 1; return x; }
+                var task = spawn(bump);
+                print x;
+                print join(task);
+                """));
+    }
+
+    @Test
+    void channelPassesValuesBetweenTasks() {
+        assertEquals("10\nnil\n", Scripts.run("""
+                var c = channel(2);
+                fun producer() { var i = 0; while (i < 5) { send(c, i); i = i + 1; } close(c); return nil; }
+                var task = spawn(producer);
+                var sum = 0;
+                var value = receive(c);
+                while (value != nil) { sum = sum + value; value = receive(c); }
+                print sum;
+                print join(task);
+                """));
+    }
+
+    @Test
+    void joinReportsTheErrorThatStoppedTheTask() {
+        assertEquals("Task failed: Operand must be a number.",
+                Scripts.execute("fun fail() { return 1 - \"a\"; } join(spawn(fail));", Limits.none()).error());
+    }
+
+    @Test
+    void tasksCountAgainstTheStatementBudgetOfTheScript() {
+        assertEquals("done\n", Scripts.run(WORKERS));
+        assertEquals("Task failed: Statement budget of 10000 exceeded.",
+                Scripts.execute(WORKERS, new Limits(0, 10_000, 0, 0, 0, 0)).error());
+    }
+
+    @Test
+    void spawnStopsAtTheTaskBudget() {
+        assertEquals("Task budget of 5 exceeded.", Scripts.execute(WORKERS, new Limits(0, 0, 0, 0, 0, 5)).error());
+    }
+
+    @Test
+    void blockedJoinStopsWhenCancelled() {
+        var release = new CountDownLatch(1);
+        var task = TaskValue.start(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        var cancellation = Cancellation.create();
+        cancellation.cancel();
+        try {
+            var error = assertThrows(Callable.NativeError.class, () -> task.join(cancellation));
+            assertEquals("Script cancelled.", error.getMessage());
+        } finally {
+            release.countDown();
+        }
+    }
+}
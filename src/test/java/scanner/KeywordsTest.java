@@ -0,0 +1,32 @@
+package scanner;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeywordsTest {
+
+    @Test
+    void everyKeywordIsRecognizedInPlace() {
+        var keywords = 0;
+        for (var type : TokenType.values()) {
+            var spelling = TokenTypes.spelling(type);
+            if (spelling == null || spelling.isEmpty() || !Character.isLetter(spelling.charAt(0))) continue;
+            keywords++;
+
+            var source = "x " + spelling + " y";
+            assertEquals(type, TokenTypes.identifier(source, 2, spelling.length()), spelling);
+            assertEquals(TokenType.IDENTIFIER, TokenTypes.identifier(source, 2, spelling.length() - 1), spelling);
+            assertEquals(TokenType.IDENTIFIER, TokenTypes.identifier(spelling + "s", 0, spelling.length() + 1), spelling);
+            assertEquals(TokenType.IDENTIFIER, TokenTypes.identifier("_" + spelling, 0, spelling.length() + 1), spelling);
+        }
+        assertEquals(17, keywords);
+    }
+
+    @Test
+    void singleLettersAreIdentifiers() {
+        for (var c = 'a'; c <= 'z'; c++) {
+            assertEquals(TokenType.IDENTIFIER, TokenTypes.identifier(String.valueOf(c), 0, 1));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package scanner;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelScanTest {
+
+    static String largeSource() {
+        var source = new StringBuilder();
+        for (int i = 0; source.length() < 3 << 20; i++) {
+            source.append("fun f").append(i).append("(a) { return a + ").append(i).append(".5; }\n");
+            source.append("var s").append(i).append(" = \"multi\nline ").append(i).append("\";\n");
+            source.append("/* block\n comment */ // line comment\n");
+            source.append("print f").append(i).append("(").append(i).append(") >= 2 and !nil;\n");
+        }
+        return source.toString();
+    }
+
+    @Test
+    void chunkedScanGivesTheSameTokens() {
+        var source = largeSource();
+        var sequential = new Scanner(source, Doctor.collecting()).scanTokens();
+        var parallel = new Scanner(source, Doctor.collecting()).scanTokens(ForkJoinPool.commonPool());
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.type(i), parallel.type(i));
+            assertEquals(sequential.lexeme(i), parallel.lexeme(i));
+            assertEquals(sequential.line(i), parallel.line(i));
+            assertEquals(sequential.literal(i), parallel.literal(i));
+        }
+    }
+}
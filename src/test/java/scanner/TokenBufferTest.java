@@ -0,0 +1,63 @@
+package scanner;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static scanner.TokenType.*;
+
+class TokenBufferTest {
+
+    private static TokenBuffer scan(String source) {
+        return new Scanner(source, Doctor.collecting()).scanTokens();
+    }
+
+    @Test
+    void tokensAreMaterializedFromTheSource() {
+        var source = "var name = 12.5;\nprint \"two\nlines\" >= name;";
+        var tokens = scan(source);
+
+        assertEquals(List.of(VAR, IDENTIFIER, EQUAL, NUMBER, SEMICOLON, PRINT, STRING, GREATER_EQUAL, IDENTIFIER,
+                SEMICOLON, EOF), tokens.stream().map(Token::type).toList());
+        assertEquals(new Token(NUMBER, "12.5", 12.5, 1, source.indexOf("12.5")), tokens.get(3));
+        assertEquals(new Token(STRING, "\"two\nlines\"", "two\nlines", 3, source.indexOf('"')), tokens.get(6));
+        assertEquals(new Token(GREATER_EQUAL, ">=", null, 3, source.indexOf(">=")), tokens.get(7));
+        assertEquals(new Token(EOF, "", null, 3, source.length()), tokens.getLast());
+    }
+
+    @Test
+    void accessorsAgreeWithTheMaterializedTokens() {
+        var tokens = scan("fun f(a, b) { return a + b * 2; } // comment\nclass C < D {}");
+        for (int i = 0; i < tokens.size(); i++) {
+            var token = tokens.get(i);
+            assertEquals(token.type(), tokens.type(i));
+            assertEquals(token.lexeme(), tokens.lexeme(i));
+            assertEquals(token.literal(), tokens.literal(i));
+            assertEquals(token.line(), tokens.line(i));
+            assertEquals(token.offset(), tokens.start(i));
+        }
+    }
+
+    @Test
+    void identifiersAreInterned() {
+        var tokens = scan("var total = 1; total = total + 1;");
+
+        assertSame(tokens.lexeme(1), tokens.lexeme(5));
+        assertSame(tokens.get(1).lexeme(), tokens.get(7).lexeme());
+        assertNull(tokens.literal(1));
+    }
+
+    @Test
+    void bufferGrowsPastItsInitialCapacity() {
+        var tokens = scan("x ".repeat(1000));
+
+        assertEquals(1001, tokens.size());
+        assertEquals(2 * 999, tokens.start(999));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokens.get(1001));
+    }
+}
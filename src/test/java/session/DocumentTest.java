@@ -0,0 +1,91 @@
+package session;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+import runtime.Cancellation;
+import runtime.Limits;
+import runtime.Runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DocumentTest {
+
+    private static String run(Document document) {
+        var doctor = Doctor.collecting();
+        var bytes = new ByteArrayOutputStream();
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(), new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        runtime.include(document.resolution());
+        runtime.run(document.statements());
+        assertEquals(List.of(), doctor.reports());
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void statementsRunWithTheResolutionOfTheirChunks() {
+        var document = new Document("""
+                fun add(a) { var b = 2; { var c = 3; return a + b + c; } }
+                var x = 1;
+                print add(x);
+                """);
+
+        assertEquals("6\n", run(document));
+    }
+
+    @Test
+    void editedChunkIsResolvedAgainAndTheOthersAreKept() {
+        var document = new Document("""
+                fun add(a) { var b = 2; return a + b; }
+                print add(1);
+                """);
+        var source = document.source();
+
+        assertEquals(List.of(), document.edit(source.indexOf("print"), "print add(1);".length(),
+                "{ var y = 5; print add(y); }"));
+        assertEquals("7\n", run(document));
+    }
+
+    @Test
+    void editReportsTheSameDiagnosticsAsAFullCompile() {
+        var document = new Document("if (x) print 1; elserint 2;\nvar y = 1;\n");
+        var edited = document.edit("if (x) print 1; else".length(), 0, " ");
+
+        assertEquals(new Document(document.source()).diagnostics(), edited);
+    }
+
+    @Test
+    void runtimeErrorInAChunkMovedByAnEditIsMappedToItsCurrentLine() {
+        var document = new Document("""
+                var a = 0;
+                fun f() { return 1 - nil; }
+                print f();
+                """);
+        assertEquals(List.of(), document.edit(document.source().indexOf('0'), 1, "(\n0\n)"));
+
+        var doctor = Doctor.collecting();
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(), new PrintStream(new ByteArrayOutputStream()));
+        runtime.include(document.resolution());
+        runtime.run(document.statements());
+
+        assertEquals(1, doctor.reports().size());
+        assertEquals(4, document.line(doctor.reports().getFirst().line()));
+    }
+
+    @Test
+    void resolutionIsComposedAgainOnlyAfterAnEdit() {
+        var source = new StringBuilder();
+        for (int i = 0; i < 20; i++) source.append("fun f%d(a) { return a; }\n".formatted(i));
+        var document = new Document(source.toString());
+        var resolution = document.resolution();
+
+        assertSame(resolution, document.resolution());
+        document.edit(0, 0, "var x = 1;\n");
+        assertNotSame(resolution, document.resolution());
+    }
+}
@@ -0,0 +1,91 @@
+package session;
+
+import doctor.Doctor;
+import org.junit.jupiter.api.Test;
+import runtime.Cancellation;
+import runtime.Limits;
+import runtime.Runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private final Repl repl;
+
+    ReplTest() {
+        var doctor = Doctor.collecting();
+        var runtime = new Runtime(doctor, Limits.none(), Cancellation.create(),
+                new PrintStream(out, true, StandardCharsets.UTF_8));
+        repl = new Repl(runtime, doctor, new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Feeds {@code lines} one by one and returns what they printed.
+     */
+    private String lines(String... lines) {
+        out.reset();
+        for (var line : lines) repl.line(line);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void bareExpressionIsEvaluatedAndPrinted() {
+        assertEquals("3\n", lines("1 + 2"));
+        assertEquals("", lines("1 + 2;"));
+    }
+
+    @Test
+    void inputEndingInsideADeclarationIsContinued() {
+        assertEquals("", lines("fun add(a, b) {"));
+        assertEquals("... ", repl.prompt());
+        assertEquals("", lines("  return a + b;", "}"));
+        assertEquals("> ", repl.prompt());
+
+        assertEquals("5\n", lines("add(2, 3)"));
+    }
+
+    @Test
+    void syntaxErrorIsReportedAndTheInputDropped() {
+        assertEquals("", lines("var = 1;"));
+        assertEquals("[line 1] Error at'=': Expect variable name.\n", err.toString(StandardCharsets.UTF_8));
+        assertEquals("> ", repl.prompt());
+
+        assertEquals("1\n", lines("print 1;"));
+    }
+
+    @Test
+    void globalsOutliveTheInputThatDefinedThem() {
+        lines("var a = 1;", "fun twice(x) { return 2 * x; }", "a = twice(a);");
+
+        assertEquals("2\n", lines("a"));
+        assertEquals("4\n", lines("print twice(a);"));
+    }
+
+    @Test
+    void closuresAndClassesKeepWorkingInLaterInputs() {
+        lines("fun counter() { var n = 0; fun next() { n = n + 1; return n; } return next; } var c = counter();",
+                "class P { init(x) { this.x = x; } }", "c();");
+
+        assertEquals("2\n", lines("c()"));
+        assertEquals("3\n", lines("P(3).x"));
+    }
+
+    /**
+     * Inlined into {@code g} and, with memoization, pure enough to cache {@code g}: neither may outlive the
+     * redefinition.
+     */
+    @Test
+    void redefinedFunctionIsSeenByTheFunctionsCallingIt() {
+        lines("fun f(x) { return x + 1; } fun g(x) { return f(x); }");
+        assertEquals("2\n", lines("g(1)"));
+
+        lines("fun f(x) { return x * 10; }");
+        assertEquals("10\n", lines("g(1)"));
+    }
+}